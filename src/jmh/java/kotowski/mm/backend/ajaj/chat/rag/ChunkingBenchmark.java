@@ -0,0 +1,37 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class ChunkingBenchmark {
+
+    @Param({"5", "50", "500"})
+    int methods;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = SyntheticSources.javaSource("ChunkingSample", methods);
+    }
+
+    @Benchmark
+    public List<Document> split() {
+        var metadata = new HashMap<String, Object>(Map.of(
+                "filepath", "/synthetic/ChunkingSample.java",
+                "projectId", "bench",
+                "appId", "be",
+                "contains", "source code"
+        ));
+        return RagBuilder.split(new Document(content, metadata));
+    }
+}
@@ -0,0 +1,40 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+public class ContextAssemblyBenchmark {
+
+    @Param({"10", "15", "50"})
+    int results;
+
+    private List<Document> docs;
+
+    @Setup
+    public void setUp() {
+        var content = SyntheticSources.javaSource("ContextSample", 8);
+        docs = IntStream.range(0, results)
+                .mapToObj(i -> new Document(content, Map.of(
+                        "filepath", "/synthetic/ContextSample" + i + ".java",
+                        "projectId", "bench",
+                        "appId", "be",
+                        "chunkNumber", i,
+                        "responsibility", "Synthetic service used for context assembly benchmarks"
+                )))
+                .toList();
+    }
+
+    @Benchmark
+    public String toContext() {
+        return RagService.toContext(docs);
+    }
+}
@@ -0,0 +1,51 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class FileScannerBenchmark {
+
+    @Param({"10", "100"})
+    int directories;
+
+    @Param({"20"})
+    int filesPerDirectory;
+
+    @Param({"false", "true"})
+    boolean ignoreBuild;
+
+    private Path root;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = SyntheticSources.javaTree(directories, filesPerDirectory);
+        if (ignoreBuild) {
+            Files.writeString(root.resolve(".gitignore"), "build/\n");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticSources.delete(root);
+    }
+
+    @Benchmark
+    public List<Path> recursiveScan() throws IOException {
+        return FileScannerService.scan(root.toString(), "src/main/java/**", List.of("*.java"), List.of());
+    }
+
+    @Benchmark
+    public List<Path> rootWildcardScan() throws IOException {
+        return FileScannerService.scan(root.toString(), "**", List.of("*.java", "*.yaml", "*.gradle"), List.of());
+    }
+}
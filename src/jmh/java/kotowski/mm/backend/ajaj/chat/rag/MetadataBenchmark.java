@@ -0,0 +1,54 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.metadata.LocalMetadataExtractor;
+import kotowski.mm.backend.ajaj.chat.rag.symbols.SymbolExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class MetadataBenchmark {
+    private static final String DESCRIPTION_JSON = """
+            { "responsibility": "Handles file storage operations", "type": "service" }
+            """;
+    private static final String FILE_NAME = "/synthetic/FileStorageService.java";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalMetadataExtractor localMetadataExtractor = new LocalMetadataExtractor(new SymbolExtractor());
+    private String source;
+    private Map<String, String> fileMetadata;
+
+    @Setup
+    public void setUp() {
+        source = SyntheticSources.javaSource("FileStorageService", 20);
+        fileMetadata = extract();
+    }
+
+    @Benchmark
+    public Map<String, String> extract() {
+        return localMetadataExtractor.extract(FILE_NAME, source);
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        return objectMapper.readValue(DESCRIPTION_JSON, RagDataTransformer.FileDescription.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> merge() {
+        var metadata = new HashMap<String, Object>(Map.of(
+                "filepath", FILE_NAME,
+                "projectId", "bench",
+                "appId", "be",
+                "contains", "source code",
+                "language", "java"
+        ));
+        RagBuilder.mergeMetadata(metadata, fileMetadata);
+        return metadata;
+    }
+}
@@ -0,0 +1,58 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+final class SyntheticSources {
+
+    private SyntheticSources() {
+    }
+
+    static String javaSource(String className, int methods) {
+        var source = new StringBuilder("""
+                package com.example.synthetic;
+
+                import org.springframework.stereotype.Service;
+                import java.util.List;
+
+                @Service
+                public class %s {
+                """.formatted(className));
+        for (var i = 0; i < methods; i++) {
+            source.append("""
+
+                        public List<String> operation%d(String input, int limit) {
+                            // Normalizes the input and returns the first limit tokens.
+                            var tokens = input.trim().toLowerCase().split("\\\\s+");
+                            return List.of(tokens).subList(0, Math.min(limit, tokens.length));
+                        }
+                    """.formatted(i));
+        }
+        return source.append("}\n").toString();
+    }
+
+    static Path javaTree(int directories, int filesPerDirectory) throws IOException {
+        var root = Files.createTempDirectory("ajaj-bench");
+        for (var d = 0; d < directories; d++) {
+            var sourceDir = Files.createDirectories(root.resolve("src/main/java/com/example/module" + d));
+            var resourceDir = Files.createDirectories(root.resolve("build/generated/module" + d));
+            for (var f = 0; f < filesPerDirectory; f++) {
+                Files.writeString(sourceDir.resolve("Service" + f + ".java"), "class Service" + f + " {}");
+                Files.writeString(sourceDir.resolve("notes" + f + ".txt"), "notes");
+                Files.writeString(resourceDir.resolve("Generated" + f + ".java"), "class Generated" + f + " {}");
+            }
+        }
+        return root;
+    }
+
+    static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Testcontainers
+@SpringBootTest(properties = "app.chat.interactive=false")
+class IndexingLoadHarness {
+    private static final int FILES = Integer.getInteger("loadtest.files", 200);
+    private static final int QUESTION_ROUNDS = Integer.getInteger("loadtest.question-rounds", 10);
+    private static final Duration CHAT_LATENCY = Duration.ofMillis(Long.getLong("loadtest.chat-latency-ms", 20));
+    private static final Duration EMBEDDING_LATENCY = Duration.ofMillis(Long.getLong("loadtest.embedding-latency-ms", 5));
+    private static final Path REPORT_DIR = Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse("pgvector/pgvector:pg17-trixie").asCompatibleSubstituteFor("postgres"))
+            .withCommand("postgres", "-c", "shared_preload_libraries=pg_stat_statements");
+
+    static final OllamaStandIn OLLAMA = OllamaStandIn.start(CHAT_LATENCY, EMBEDDING_LATENCY);
+    static final Path REPOSITORY = SyntheticRepository.generate(FILES);
+
+    @Autowired
+    private RagService ragService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.ai.ollama.base-url", OLLAMA::baseUrl);
+        registry.add("app.projects[0].id", () -> "load");
+        registry.add("app.projects[0].name", () -> "Synthetic load test repository");
+        registry.add("app.projects[0].apps[0].id", () -> "be");
+        registry.add("app.projects[0].apps[0].type", () -> "backend");
+        registry.add("app.projects[0].apps[0].path", REPOSITORY::toString);
+        registry.add("app.projects[0].apps[0].development-platform", () -> "windows");
+        registry.add("app.projects[0].apps[0].watch[0].path", () -> "src/main/java/**");
+        registry.add("app.projects[0].apps[0].watch[0].patterns[0]", () -> "*.java");
+        registry.add("app.projects[0].apps[0].watch[1].path", () -> "src/main/resources/**");
+        registry.add("app.projects[0].apps[0].watch[1].patterns[0]", () -> "*.sql");
+    }
+
+    @AfterAll
+    static void stopOllama() {
+        OLLAMA.close();
+    }
+
+    @Test
+    void indexAndQuery() throws IOException {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+        jdbcTemplate.execute("SELECT pg_stat_statements_reset()");
+
+        var indexingStart = System.nanoTime();
+        ragService.buildDb();
+        var indexing = Duration.ofNanos(System.nanoTime() - indexingStart);
+
+        var statements = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(calls), 0)
+                FROM pg_stat_statements
+                WHERE query NOT ILIKE '%pg_stat_statements%'""", Long.class);
+        var indexedFiles = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM indexed_file WHERE modified_at_stored IS NOT NULL", Long.class);
+
+        var latencies = new ArrayList<Long>();
+        for (var round = 0; round < QUESTION_ROUNDS; round++) {
+            for (var question : questions()) {
+                var start = System.nanoTime();
+                ragService.getInitialContextForQuestion(question);
+                latencies.add(System.nanoTime() - start);
+            }
+        }
+        latencies.sort(Long::compare);
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("files", indexedFiles);
+        report.put("chatLatencyMs", CHAT_LATENCY.toMillis());
+        report.put("embeddingLatencyMs", EMBEDDING_LATENCY.toMillis());
+        report.put("indexingMs", indexing.toMillis());
+        report.put("filesPerSecond", indexedFiles / (indexing.toNanos() / 1_000_000_000.0));
+        report.put("dbStatementsPerFile", (double) statements / indexedFiles);
+        report.put("chatRequests", OLLAMA.getChatRequests());
+        report.put("embeddingRequests", OLLAMA.getEmbeddingRequests());
+        report.put("questions", latencies.size());
+        report.put("retrievalP50Ms", percentile(latencies, 0.5) / 1_000_000.0);
+        report.put("retrievalP99Ms", percentile(latencies, 0.99) / 1_000_000.0);
+        writeReport(report);
+
+        assertThat(indexedFiles).isEqualTo((long) FILES);
+    }
+
+    private static List<String> questions() throws IOException {
+        var questionsFile = System.getProperty("loadtest.questions");
+        if (questionsFile != null) {
+            return Files.readAllLines(Path.of(questionsFile)).stream()
+                    .filter(line -> !line.isBlank())
+                    .toList();
+        }
+        return SyntheticRepository.DOMAINS.stream()
+                .map(domain -> "How is a new " + domain + " created and validated?")
+                .toList();
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        var index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static void writeReport(LinkedHashMap<String, Object> report) throws IOException {
+        var objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        var json = objectMapper.writeValueAsString(report);
+        Files.createDirectories(REPORT_DIR);
+        Files.writeString(REPORT_DIR.resolve("indexing-" + System.currentTimeMillis() + ".json"), json);
+        log.info("Load harness report:\n{}", json);
+    }
+}
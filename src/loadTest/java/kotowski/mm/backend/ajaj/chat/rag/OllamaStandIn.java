@@ -0,0 +1,177 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal HTTP stand-in for the Ollama {@code /api/chat} and {@code /api/embed} endpoints.
+ * Answers after a configurable latency and returns deterministic bag-of-words vectors, so texts sharing
+ * words are similar and retrieval behaves like with a real embedding model.
+ */
+@Slf4j
+class OllamaStandIn implements AutoCloseable {
+    static final int DIMENSIONS = 768;
+    private static final Pattern FILE_START = Pattern.compile("^### FILE START: (.+)$", Pattern.MULTILINE);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Duration chatLatency;
+    private final Duration embeddingLatency;
+    private final HttpServer server;
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong embeddingRequests = new AtomicLong();
+
+    private OllamaStandIn(Duration chatLatency, Duration embeddingLatency) throws IOException {
+        this.chatLatency = chatLatency;
+        this.embeddingLatency = embeddingLatency;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/chat", exchange -> handle(exchange, this::chat));
+        server.createContext("/api/embed", exchange -> handle(exchange, this::embed));
+        server.start();
+    }
+
+    static OllamaStandIn start(Duration chatLatency, Duration embeddingLatency) {
+        try {
+            return new OllamaStandIn(chatLatency, embeddingLatency);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    long getChatRequests() {
+        return chatRequests.get();
+    }
+
+    long getEmbeddingRequests() {
+        return embeddingRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange, RequestHandler handler) throws IOException {
+        try {
+            var request = objectMapper.readTree(exchange.getRequestBody());
+            var response = objectMapper.writeValueAsBytes(handler.handle(request));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (Exception e) {
+            log.error("Ollama stand-in failed to handle {}", exchange.getRequestURI(), e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ObjectNode chat(JsonNode request) throws InterruptedException, JsonProcessingException {
+        chatRequests.incrementAndGet();
+        Thread.sleep(chatLatency);
+        var messages = request.path("messages");
+        var prompt = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("content").asText();
+        var response = objectMapper.createObjectNode()
+                .put("model", request.path("model").asText())
+                .put("created_at", Instant.now().toString())
+                .put("done", true)
+                .put("done_reason", "stop")
+                .put("total_duration", chatLatency.toNanos())
+                .put("prompt_eval_count", prompt.length() / 4)
+                .put("eval_count", 32);
+        response.putObject("message")
+                .put("role", "assistant")
+                .put("content", answer(prompt));
+        return response;
+    }
+
+    private String answer(String prompt) throws JsonProcessingException {
+        if (prompt.contains("SOURCE FILES TO ANALYZE")) {
+            var descriptions = objectMapper.createArrayNode();
+            FILE_START.matcher(prompt).results()
+                    .map(match -> match.group(1).trim())
+                    .forEach(filename -> descriptions.add(describe(filename).put("file", filename)));
+            return objectMapper.writeValueAsString(descriptions);
+        }
+        if (prompt.contains("SOURCE CODE TO ANALYZE")) {
+            var filename = prompt.substring(prompt.indexOf("Source code filename:") + 21).lines().findFirst().orElse("").trim();
+            return objectMapper.writeValueAsString(describe(filename));
+        }
+        var question = prompt.lastIndexOf("QUESTION:");
+        return question < 0 ? prompt : prompt.substring(question + 9).trim();
+    }
+
+    private ObjectNode describe(String filename) {
+        var name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1);
+        return objectMapper.createObjectNode()
+                .put("responsibility", "Synthetic file " + name)
+                .put("type", "service");
+    }
+
+    private ObjectNode embed(JsonNode request) throws InterruptedException {
+        embeddingRequests.incrementAndGet();
+        Thread.sleep(embeddingLatency);
+        var response = objectMapper.createObjectNode()
+                .put("model", request.path("model").asText());
+        var embeddings = response.putArray("embeddings");
+        var input = request.path("input");
+        var texts = input.isArray() ? input : objectMapper.createArrayNode().add(input);
+        for (var text : texts) {
+            var vector = embeddings.addArray();
+            for (var value : vector(text.asText())) {
+                vector.add(value);
+            }
+        }
+        return response;
+    }
+
+    static float[] vector(String text) {
+        var vector = new float[DIMENSIONS];
+        for (var token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            var hash = token.hashCode();
+            vector[Math.floorMod(hash, DIMENSIONS)] += (hash & 1) == 0 ? 1 : -1;
+        }
+        var norm = 0.0;
+        for (var value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        var length = (float) Math.sqrt(norm);
+        for (var i = 0; i < vector.length; i++) {
+            vector[i] /= length;
+        }
+        return vector;
+    }
+
+    @FunctionalInterface
+    private interface RequestHandler {
+        ObjectNode handle(JsonNode request) throws Exception;
+    }
+}
@@ -0,0 +1,86 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+final class SyntheticRepository {
+    static final List<String> DOMAINS = List.of("invoice", "customer", "payment", "shipment", "catalog", "report", "audit", "session");
+
+    private SyntheticRepository() {
+    }
+
+    static Path generate(int files) {
+        try {
+            var root = Files.createTempDirectory("ajaj-load");
+            var sources = Files.createDirectories(root.resolve("src/main/java/com/example/load"));
+            var resources = Files.createDirectories(root.resolve("src/main/resources/db/migration"));
+            for (var i = 0; i < files; i++) {
+                var domain = DOMAINS.get(i % DOMAINS.size());
+                if (i % 10 == 9) {
+                    Files.writeString(resources.resolve("V%d__%s.sql".formatted(i, domain)), migration(domain, i));
+                } else {
+                    var className = capitalize(domain) + "Service" + i;
+                    Files.writeString(sources.resolve(className + ".java"), javaSource(className, domain));
+                }
+            }
+            return root;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String javaSource(String className, String domain) {
+        return """
+                package com.example.load;
+
+                import org.springframework.stereotype.Service;
+                import org.springframework.transaction.annotation.Transactional;
+
+                import java.util.List;
+                import java.util.UUID;
+
+                @Service
+                public class %1$s {
+                    private final %2$sRepository %3$sRepository;
+
+                    public %1$s(%2$sRepository %3$sRepository) {
+                        this.%3$sRepository = %3$sRepository;
+                    }
+
+                    @Transactional
+                    public %2$s create%2$s(String name) {
+                        // Creates a new %3$s and validates its name before storing it.
+                        if (name == null || name.isBlank()) {
+                            throw new IllegalArgumentException("The %3$s name is required");
+                        }
+                        return %3$sRepository.save(new %2$s(UUID.randomUUID(), name));
+                    }
+
+                    public List<%2$s> find%2$ss(String query, int limit) {
+                        return %3$sRepository.findByNameContaining(query).stream()
+                                .limit(limit)
+                                .toList();
+                    }
+                }
+                """.formatted(className, capitalize(domain), domain);
+    }
+
+    private static String migration(String domain, int version) {
+        return """
+                create table %1$s_%2$d
+                (
+                    id   uuid primary key,
+                    name text not null
+                );
+
+                create index %1$s_%2$d_name_idx on %1$s_%2$d (name);
+                """.formatted(domain, version);
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+}
@@ -0,0 +1,176 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.RagService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers the questions of a JSON lines file when {@code app.batch.input} is set. Questions run concurrently up to
+ * {@code app.batch.parallelism}, each in its own conversation, and every answer is appended to the output file with
+ * its latency and token statistics as soon as it is complete. Without {@code app.batch.output} the answers go next to
+ * the input, {@code questions.jsonl} is answered into {@code questions.answers.jsonl}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.batch.input")
+class BatchQuestionRunner implements CommandLineRunner {
+    /**
+     * Length of {@code SPRING_AI_CHAT_MEMORY.conversation_id}.
+     */
+    private static final int MAX_CONVERSATION_ID_LENGTH = 36;
+
+    private final RagService ragService;
+    private final ChatQuestionService chatQuestionService;
+    private final ChatTurnMetrics chatTurnMetrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.batch.input}")
+    private Path input;
+
+    @Value("${app.batch.output:}")
+    private String output;
+
+    @Value("${app.batch.parallelism:2}")
+    private int parallelism;
+
+    @Override
+    public void run(String... args) throws IOException {
+        var questions = readQuestions();
+        var outputFile = outputFile();
+        ragService.buildDb();
+        log.info("Answering {} questions from {} with parallelism {}", questions.size(), input, parallelism);
+        var failed = new AtomicInteger();
+        var tasks = new ArrayList<Future<?>>();
+        try (var writer = Files.newBufferedWriter(outputFile);
+             var executor = Executors.newFixedThreadPool(parallelism)) {
+            for (var question : questions) {
+                tasks.add(executor.submit(() -> {
+                    var answer = answer(question);
+                    write(writer, answer);
+                    if (answer.error() != null) {
+                        failed.incrementAndGet();
+                    }
+                }));
+            }
+        }
+        for (var task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                log.error("Batch answer could not be written to {}", outputFile, e.getCause());
+                failed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        log.info("Batch finished: {} answered, {} failed, written to {}", questions.size() - failed.get(), failed.get(), outputFile);
+        log.info("Batch metrics:\n{}", chatTurnMetrics.report());
+    }
+
+    private Path outputFile() {
+        if (StringUtils.hasText(output)) {
+            return Path.of(output);
+        }
+        var name = input.getFileName().toString();
+        var extension = name.lastIndexOf('.');
+        return input.resolveSibling((extension > 0 ? name.substring(0, extension) : name) + ".answers.jsonl");
+    }
+
+    private List<BatchQuestion> readQuestions() throws IOException {
+        var questions = new ArrayList<BatchQuestion>();
+        var lineNumber = 0;
+        for (var line : Files.readAllLines(input)) {
+            lineNumber++;
+            if (!StringUtils.hasText(line)) {
+                continue;
+            }
+            var question = objectMapper.readValue(line, BatchQuestion.class);
+            if (StringUtils.hasText(question.conversationId()) && question.conversationId().length() > MAX_CONVERSATION_ID_LENGTH) {
+                throw new IllegalArgumentException("Conversation id on line %d of %s is longer than %d characters: %s"
+                        .formatted(lineNumber, input, MAX_CONVERSATION_ID_LENGTH, question.conversationId()));
+            }
+            questions.add(new BatchQuestion(
+                    StringUtils.hasText(question.id()) ? question.id() : String.valueOf(lineNumber),
+                    question.question(),
+                    StringUtils.hasText(question.conversationId()) ? question.conversationId() : UUID.randomUUID().toString()));
+        }
+        return questions;
+    }
+
+    private BatchAnswer answer(BatchQuestion question) {
+        var turn = chatTurnMetrics.startDetachedTurn();
+        var text = new StringBuilder();
+        String error = null;
+        try {
+            chatQuestionService.ask(question.question(), question.conversationId())
+                    .doOnNext(response -> {
+                        turn.onResponse(response);
+                        var chunk = response.getResult() == null ? null : response.getResult().getOutput().getText();
+                        if (chunk != null) {
+                            text.append(chunk);
+                        }
+                    })
+                    .blockLast();
+        } catch (Exception e) {
+            log.warn("Question {} failed", question.id(), e);
+            error = e.getMessage();
+        } finally {
+            chatTurnMetrics.finishTurn(turn);
+        }
+        var ttft = turn.getTimeToFirstToken();
+        return new BatchAnswer(question.id(), question.conversationId(), question.question(), text.toString(), error,
+                turn.getTotal().toMillis(), ttft == null ? null : ttft.toMillis(), turn.getTokens(),
+                turn.getTokensPerSecond(), turn.getStageNanos(ChatTurnMetrics.Stage.PROMPT) / 1_000_000);
+    }
+
+    private void write(BufferedWriter writer, BatchAnswer answer) {
+        try {
+            var line = objectMapper.writeValueAsString(answer);
+            synchronized (writer) {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record BatchQuestion(String id, String question, String conversationId) {
+    }
+
+    record BatchAnswer(
+            String id,
+            String conversationId,
+            String question,
+            String answer,
+            String error,
+            long latencyMs,
+            Long timeToFirstTokenMs,
+            long tokens,
+            double tokensPerSecond,
+            long promptEvalMs
+    ) {
+    }
+}
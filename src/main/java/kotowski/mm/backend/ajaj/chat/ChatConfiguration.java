@@ -1,5 +1,6 @@
 package kotowski.mm.backend.ajaj.chat;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
@@ -22,6 +23,7 @@ public class ChatConfiguration {
 
     private final List<ToolCallback> toolCallbacks;
     private final ChatClient.Builder chatClientBuilder;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.ai.memory-deep}")
     private int memoryDeep;
@@ -47,7 +49,8 @@ public class ChatConfiguration {
     ChatClient chatClient(ChatMemory chatMemory) {
         return chatClientBuilder
                 .defaultToolCallbacks(toolCallbacks)
-                .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
+                .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build(),
+                        new PromptPrefixAdvisor("chat", meterRegistry))
                 .build();
     }
 
@@ -0,0 +1,51 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import kotowski.mm.backend.ajaj.chat.rag.RagService;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.ModelRouter;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.ModelTask;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+@Service
+@RequiredArgsConstructor
+public class ChatQuestionService {
+    private final ChatClient chatClient;
+    private final RagService ragService;
+    private final ProjectsProperties projectsProperties;
+    private final ModelRouter modelRouter;
+
+    /**
+     * Retrieves the RAG context and streams the answer. Stable parts of the prompt go first, so consecutive prompts
+     * share a cacheable prefix.
+     */
+    public Flux<ChatResponse> ask(String question, String conversationId) {
+        var ragContext = ragService.getInitialContextForQuestion(question);
+        return chatClient.prompt()
+                .options(modelRouter.options(ModelTask.CHAT).build())
+                .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .system("""
+                    You are an expert assistant. Use provided context to answer accurately.
+                    Use getAnyContextData tool function to get more context if needed.
+                
+                    <--PROJECT CONTEXT-->
+                    %s
+                    <--END PROJECT CONTEXT-->
+                    """.formatted(projectsProperties.getContext()))
+                .user("""
+                    <--RAG (Retrieval Augmented Generation) CONTEXT-->
+                    %s
+                    <--END RAG CONTEXT-->
+                
+                    <--BEGIN QUESTION-->
+                    %s
+                    <--END QUESTION-->
+                """.formatted(ragContext, question))
+                .stream()
+                .chatResponse();
+    }
+}
@@ -1,14 +1,18 @@
 package kotowski.mm.backend.ajaj.chat;
 
 import kotowski.mm.backend.ajaj.chat.rag.RagService;
-import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import kotowski.mm.backend.ajaj.chat.rag.eval.RetrievalEvaluator;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StartupTimer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.nio.file.Path;
 import java.util.Scanner;
 
 @Service
@@ -16,61 +20,93 @@ import java.util.Scanner;
 public class ChatRunnerService {
 
     private final RagService ragService;
-    private final ProjectsProperties projectsProperties;
+    private final ChatQuestionService chatQuestionService;
+    private final ChatTurnMetrics chatTurnMetrics;
+    private final RetrievalEvaluator retrievalEvaluator;
+    private final StartupTimer startupTimer;
+
+    @Value("${app.chat.index-in-background:false}")
+    private boolean indexInBackground;
 
     @Bean
-    CommandLineRunner chatRunner(ChatClient chatClient) {
-        ragService.buildDb();
+    @ConditionalOnProperty(name = "app.chat.interactive", havingValue = "true", matchIfMissing = true)
+    CommandLineRunner chatRunner() {
         return args -> {
+            if (indexInBackground) {
+                Thread.ofPlatform().name("index-build").daemon().start(ragService::buildDb);
+            } else {
+                ragService.buildDb();
+            }
+            startupTimer.promptReady();
             System.out.println("💬 Spring AI CLI chat (type 'exit' to quit)\n");
             Scanner scanner = new Scanner(System.in);
             while (true) {
                 System.out.print("Ty: ");
                 String input = scanner.nextLine().trim();
                 if (input.equalsIgnoreCase("exit")) break;
-                askAi(chatClient, input);
+                if (input.equalsIgnoreCase("/stats")) {
+                    System.out.println(chatTurnMetrics.report());
+                    continue;
+                }
+                if (input.startsWith("/export ") || input.startsWith("/import ")) {
+                    snapshot(input);
+                    continue;
+                }
+                if (input.startsWith("/eval ")) {
+                    evaluate(input);
+                    continue;
+                }
+                askAi(input);
                 System.out.println();
             }
             System.out.println("👋 Zakończono rozmowę.");
         };
     }
 
-    private void askAi(ChatClient chatClient, String input) {
+    private void snapshot(String input) {
+        var file = Path.of(input.substring(input.indexOf(' ') + 1).strip());
+        try {
+            if (input.startsWith("/export ")) {
+                ragService.exportSnapshot(file);
+                System.out.println("Index exported to " + file);
+            } else {
+                ragService.importSnapshot(file);
+                System.out.println("Index imported from " + file);
+            }
+        } catch (Exception e) {
+            System.out.println("Snapshot failed: " + e.getMessage());
+        }
+    }
+
+    private void evaluate(String input) {
+        var arguments = input.substring("/eval ".length()).strip().split("\\s+");
+        try {
+            var results = retrievalEvaluator.evaluate(Path.of(arguments[0]), arguments.length > 1 ? Path.of(arguments[1]) : null);
+            results.forEach(System.out::println);
+        } catch (Exception e) {
+            System.out.println("Evaluation failed: " + e.getMessage());
+        }
+    }
+
+    private void askAi(String input) {
         var spinner = new Spinner();
-        var enrichedInput = """
-                    <--BEGIN QUESTION-->
-                    %s
-                    <--END QUESTION-->
-                
-                    <--PROJECT CONTEXT-->
-                    %s
-                    <--END PROJECT CONTEXT-->
-                
-                    <--RAG (Retrieval Augmented Generation) CONTEXT-->
-                    %s
-                    <--END RAG CONTEXT-->
-                """.formatted(
-                input,
-                projectsProperties.getContext(),
-                ragService.getInitialContextForQuestion(input)
-        );
-        chatClient.prompt()
-                .system("""
-                    You are an expert assistant. Use provided context to answer accurately.
-                    Use getAnyContextData tool function to get more context if needed.
-                    """)
-                .user(enrichedInput)
-                .stream()
-                .chatResponse()
-                .doOnNext(response -> {
-                    var output = response.getResult().getOutput();
-                    var text = output.getText();
-                    if (StringUtils.hasText(text)) {
-                        spinner.stop();
-                        System.out.print(text);
-                    }
-                })
-                .blockLast();
+        var turn = chatTurnMetrics.startTurn();
+        try {
+            chatQuestionService.ask(input, ChatMemory.DEFAULT_CONVERSATION_ID)
+                    .doOnNext(response -> {
+                        turn.onResponse(response);
+                        var output = response.getResult().getOutput();
+                        var text = output.getText();
+                        if (StringUtils.hasText(text)) {
+                            spinner.stop();
+                            System.out.print(text);
+                        }
+                    })
+                    .blockLast();
+        } finally {
+            spinner.stop();
+            chatTurnMetrics.finishTurn(turn);
+        }
     }
 
 }
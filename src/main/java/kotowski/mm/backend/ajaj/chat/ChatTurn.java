@@ -0,0 +1,117 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+public class ChatTurn {
+    private static final String PROMPT_EVAL_DURATION = "prompt-eval-duration";
+
+    private final boolean detached;
+    private final long startedAt = System.nanoTime();
+    private final Map<ChatTurnMetrics.Stage, LongAdder> stages = new EnumMap<>(ChatTurnMetrics.Stage.class);
+    private final AtomicInteger toolCalls = new AtomicInteger();
+    private final AtomicLong textChunks = new AtomicLong();
+    private volatile long firstTokenAt;
+    private volatile long lastTokenAt;
+    private volatile long completionTokens;
+    private volatile Duration promptEvalDuration;
+    private volatile long finishedAt;
+
+    ChatTurn(boolean detached) {
+        this.detached = detached;
+        for (var stage : ChatTurnMetrics.Stage.values()) {
+            stages.put(stage, new LongAdder());
+        }
+    }
+
+    /**
+     * @return whether the turn ran next to others and its stages were not timed
+     */
+    boolean isDetached() {
+        return detached;
+    }
+
+    void add(ChatTurnMetrics.Stage stage, long nanos) {
+        stages.get(stage).add(nanos);
+    }
+
+    void toolCalled() {
+        toolCalls.incrementAndGet();
+    }
+
+    public void onResponse(ChatResponse response) {
+        var now = System.nanoTime();
+        if (response.getResult() != null && StringUtils.hasText(response.getResult().getOutput().getText())) {
+            if (firstTokenAt == 0) {
+                firstTokenAt = now;
+            }
+            lastTokenAt = now;
+            textChunks.incrementAndGet();
+        }
+        var metadata = response.getMetadata();
+        var usage = metadata.getUsage();
+        if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > completionTokens) {
+            completionTokens = usage.getCompletionTokens();
+        }
+        if (metadata.get(PROMPT_EVAL_DURATION) instanceof Duration duration) {
+            promptEvalDuration = duration;
+        }
+    }
+
+    void finish() {
+        finishedAt = System.nanoTime();
+        if (promptEvalDuration != null) {
+            stages.get(ChatTurnMetrics.Stage.PROMPT).add(promptEvalDuration.toNanos());
+        }
+        if (firstTokenAt != 0) {
+            stages.get(ChatTurnMetrics.Stage.GENERATION).add(lastTokenAt - firstTokenAt);
+        }
+    }
+
+    public long getStageNanos(ChatTurnMetrics.Stage stage) {
+        return stages.get(stage).sum();
+    }
+
+    public Duration getTotal() {
+        return Duration.ofNanos((finishedAt == 0 ? System.nanoTime() : finishedAt) - startedAt);
+    }
+
+    public Duration getTimeToFirstToken() {
+        return firstTokenAt == 0 ? null : Duration.ofNanos(firstTokenAt - startedAt);
+    }
+
+    public long getTokens() {
+        return completionTokens > 0 ? completionTokens : textChunks.get();
+    }
+
+    public double getTokensPerSecond() {
+        var generation = getStageNanos(ChatTurnMetrics.Stage.GENERATION);
+        return generation > 0 ? getTokens() / (generation / 1_000_000_000.0) : 0;
+    }
+
+    public int getToolCalls() {
+        return toolCalls.get();
+    }
+
+    @Override
+    public String toString() {
+        var ttft = getTimeToFirstToken();
+        return "total=%dms ttft=%s tokens=%d tokens/s=%.1f toolCalls=%d %s".formatted(
+                getTotal().toMillis(),
+                ttft == null ? "-" : ttft.toMillis() + "ms",
+                getTokens(),
+                getTokensPerSecond(),
+                getToolCalls(),
+                stages.entrySet().stream()
+                        .map(entry -> "%s=%dms".formatted(entry.getKey().getTag(), entry.getValue().sum() / 1_000_000))
+                        .collect(Collectors.joining(" ")));
+    }
+}
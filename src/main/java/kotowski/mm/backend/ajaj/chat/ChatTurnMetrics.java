@@ -0,0 +1,105 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kotowski.mm.backend.ajaj.infrastructure.bench.MetricsReport;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+public class ChatTurnMetrics {
+    private final MeterRegistry meterRegistry;
+    private final MetricsReport metricsReport;
+
+    private final AtomicReference<ChatTurn> currentTurn = new AtomicReference<>();
+    private volatile ChatTurn lastTurn;
+
+    public ChatTurn startTurn() {
+        var turn = new ChatTurn(false);
+        currentTurn.set(turn);
+        return turn;
+    }
+
+    /**
+     * A turn running next to others. It is never the current turn, so stage timings taken from observations are not
+     * attributed to it and it does not record {@code ajaj.chat.stage}; time to first token, generation and prompt
+     * evaluation are still measured.
+     */
+    public ChatTurn startDetachedTurn() {
+        return new ChatTurn(true);
+    }
+
+    public Optional<ChatTurn> getCurrentTurn() {
+        return Optional.ofNullable(currentTurn.get());
+    }
+
+    public <T> T time(Stage stage, Supplier<T> supplier) {
+        var start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    void record(Stage stage, long nanos) {
+        getCurrentTurn().ifPresent(turn -> turn.add(stage, nanos));
+    }
+
+    public void finishTurn(ChatTurn turn) {
+        currentTurn.compareAndSet(turn, null);
+        turn.finish();
+        if (!turn.isDetached()) {
+            for (var stage : Stage.values()) {
+                Timer.builder("ajaj.chat.stage")
+                        .tag("stage", stage.getTag())
+                        .register(meterRegistry)
+                        .record(turn.getStageNanos(stage), TimeUnit.NANOSECONDS);
+            }
+        }
+        Timer.builder("ajaj.chat.turn")
+                .register(meterRegistry)
+                .record(turn.getTotal());
+        if (turn.getTimeToFirstToken() != null) {
+            Timer.builder("ajaj.chat.ttft")
+                    .register(meterRegistry)
+                    .record(turn.getTimeToFirstToken());
+            DistributionSummary.builder("ajaj.chat.tokens.per.second")
+                    .register(meterRegistry)
+                    .record(turn.getTokensPerSecond());
+        }
+        DistributionSummary.builder("ajaj.chat.tool.calls")
+                .register(meterRegistry)
+                .record(turn.getToolCalls());
+        lastTurn = turn;
+    }
+
+    public String report() {
+        return """
+                Last turn: %s
+                %s""".formatted(
+                lastTurn == null ? "-" : lastTurn,
+                metricsReport.render("ajaj.chat", "ajaj.prompt", "gen_ai", "db.vector", "spring.ai.tool"));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Stage {
+        REWRITE("rewrite"),
+        EMBEDDING("embedding"),
+        VECTOR_SEARCH("vector-search"),
+        PROMPT("prompt"),
+        TOOLS("tools"),
+        GENERATION("generation");
+
+        private final String tag;
+    }
+}
@@ -0,0 +1,68 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.embedding.observation.EmbeddingModelObservationContext;
+import org.springframework.ai.tool.observation.ToolCallingObservationContext;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds embedding, vector search and tool time to the current chat turn. Indexing runs with a background priority on
+ * its own threads and is left out, also when it overlaps a turn.
+ */
+@Component
+@RequiredArgsConstructor
+class ChatTurnObservationHandler implements ObservationHandler<Observation.Context> {
+    private static final String STARTED_AT = ChatTurnObservationHandler.class.getName() + ".startedAt";
+    private static final String EMBEDDING_BEFORE = ChatTurnObservationHandler.class.getName() + ".embeddingBefore";
+    private static final String QUERY_OPERATION = "query";
+
+    private final ChatTurnMetrics chatTurnMetrics;
+    private final OllamaScheduler ollamaScheduler;
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof EmbeddingModelObservationContext
+                || context instanceof VectorStoreObservationContext
+                || context instanceof ToolCallingObservationContext;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (ollamaScheduler.currentPriority().isBackground()) {
+            return;
+        }
+        context.put(STARTED_AT, System.nanoTime());
+        chatTurnMetrics.getCurrentTurn().ifPresent(turn ->
+                context.put(EMBEDDING_BEFORE, turn.getStageNanos(ChatTurnMetrics.Stage.EMBEDDING)));
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long startedAt = context.get(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+        var elapsed = System.nanoTime() - startedAt;
+        switch (context) {
+            case EmbeddingModelObservationContext ignored ->
+                    chatTurnMetrics.record(ChatTurnMetrics.Stage.EMBEDDING, elapsed);
+            case VectorStoreObservationContext vectorStoreContext
+                    when QUERY_OPERATION.equals(vectorStoreContext.getOperationName()) ->
+                    chatTurnMetrics.getCurrentTurn().ifPresent(turn -> {
+                        Long embeddingBefore = context.getOrDefault(EMBEDDING_BEFORE, 0L);
+                        var embedding = turn.getStageNanos(ChatTurnMetrics.Stage.EMBEDDING) - embeddingBefore;
+                        turn.add(ChatTurnMetrics.Stage.VECTOR_SEARCH, Math.max(0, elapsed - embedding));
+                    });
+            case ToolCallingObservationContext ignored -> chatTurnMetrics.getCurrentTurn().ifPresent(turn -> {
+                turn.add(ChatTurnMetrics.Stage.TOOLS, elapsed);
+                turn.toolCalled();
+            });
+            default -> {
+            }
+        }
+    }
+}
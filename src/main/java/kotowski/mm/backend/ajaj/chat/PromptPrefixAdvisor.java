@@ -0,0 +1,116 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.core.Ordered;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how much of each prompt repeats the previous prompt of the same conversation byte for byte, which is the
+ * part Ollama can take from its KV cache, and how many prompt tokens the model actually had to evaluate. Prompts
+ * without a conversation, such as rewrites and metadata, are compared with the previous prompt of the same system
+ * message, so concurrent calls do not measure against each other.
+ */
+public class PromptPrefixAdvisor implements BaseAdvisor {
+    private static final int MAX_TRACKED_PROMPTS = 256;
+
+    private final Map<String, String> previousPrompts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_TRACKED_PROMPTS;
+        }
+    };
+    private final DistributionSummary prefixReuse;
+    private final DistributionSummary evaluatedTokens;
+
+    public PromptPrefixAdvisor(String client, MeterRegistry meterRegistry) {
+        prefixReuse = DistributionSummary.builder("ajaj.prompt.prefix.reuse")
+                .description("Share of the prompt identical to the start of the previous prompt")
+                .tag("client", client)
+                .register(meterRegistry);
+        evaluatedTokens = DistributionSummary.builder("ajaj.prompt.evaluated.tokens")
+                .description("Prompt tokens evaluated by the model, cached prefix tokens excluded")
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        var prompt = render(chatClientRequest);
+        String previous;
+        synchronized (previousPrompts) {
+            previous = previousPrompts.put(streamKey(chatClientRequest), prompt);
+        }
+        if (previous != null && !previous.isEmpty() && !prompt.isEmpty()) {
+            prefixReuse.record((double) commonPrefixLength(previous, prompt) / prompt.length());
+        }
+        return chatClientRequest;
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        var response = chatClientResponse.chatResponse();
+        if (response != null && response.getMetadata().getUsage() != null
+                && response.getMetadata().getUsage().getPromptTokens() != null) {
+            evaluatedTokens.record(response.getMetadata().getUsage().getPromptTokens());
+        }
+        return chatClientResponse;
+    }
+
+    @Override
+    public String getName() {
+        return PromptPrefixAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+
+    private static String streamKey(ChatClientRequest request) {
+        if (request.context().get(ChatMemory.CONVERSATION_ID) instanceof String conversationId) {
+            return "conversation:" + conversationId;
+        }
+        return request.prompt().getInstructions().stream()
+                .filter(message -> message.getMessageType() == MessageType.SYSTEM)
+                .findFirst()
+                .map(PromptPrefixAdvisor::render)
+                .orElse("");
+    }
+
+    private static String render(ChatClientRequest request) {
+        var tools = request.prompt().getOptions() instanceof ToolCallingChatOptions options
+                ? options.getToolCallbacks().stream()
+                        .map(callback -> callback.getToolDefinition().name())
+                        .collect(Collectors.joining(",", "tools:", "\n"))
+                : "";
+        return tools + request.prompt().getInstructions().stream()
+                .map(PromptPrefixAdvisor::render)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String render(Message message) {
+        return message.getMessageType().getValue() + ":" + message.getText();
+    }
+
+    static int commonPrefixLength(String first, String second) {
+        var length = Math.min(first.length(), second.length());
+        for (var i = 0; i < length; i++) {
+            if (first.charAt(i) != second.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,106 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorStoreBulkLoader;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Collects staged files and, once enough chunks are pending, embeds them and writes them with
+ * {@link VectorStoreBulkLoader#load}. Smaller leftovers go through the regular per-file path.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class BulkIndexWriter {
+    private final DocumentEmbedder documentEmbedder;
+    private final VectorStoreBulkLoader vectorStoreBulkLoader;
+    private final RagBuilder ragBuilder;
+    private final StageTimer stageTimer;
+
+    @Value("${app.ai.bulk-load.enabled}")
+    private boolean enabled;
+
+    @Value("${app.ai.bulk-load.min-chunks}")
+    private int minChunks;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param onStored called for every file once its documents are written, never for files that failed
+     */
+    Buffer buffer(Consumer<UUID> onStored) {
+        return new Buffer(onStored);
+    }
+
+    private void write(List<StagedFile> files) {
+        var chunks = files.stream().mapToInt(file -> file.documents().size()).sum();
+        var subject = "%d files, %d chunks".formatted(files.size(), chunks);
+        stageTimer.run(RagBuilder.INDEXING, "bulk-write", subject, () -> vectorStoreBulkLoader.load(files.stream()
+                .map(file -> new VectorStoreBulkLoader.BulkFile(file.indexedFileId(), file.contentHash()))
+                .toList(), documentEmbedder.embed(files)));
+        log.info("Bulk loaded {}", subject);
+    }
+
+    class Buffer implements AutoCloseable {
+        private final Consumer<UUID> onStored;
+        private final List<StagedFile> pending = new ArrayList<>();
+        private int pendingChunks;
+
+        private Buffer(Consumer<UUID> onStored) {
+            this.onStored = onStored;
+        }
+
+        void add(StagedFile file) {
+            pending.add(file);
+            pendingChunks += file.documents().size();
+            if (pendingChunks >= minChunks) {
+                flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (pendingChunks >= minChunks) {
+                flush();
+                return;
+            }
+            storeOneByOne();
+        }
+
+        private void flush() {
+            try {
+                write(pending);
+            } catch (RuntimeException e) {
+                log.warn("Bulk load of {} files failed, storing them one by one", pending.size(), e);
+                storeOneByOne();
+                return;
+            }
+            pending.forEach(file -> onStored.accept(file.indexedFileId()));
+            pending.clear();
+            pendingChunks = 0;
+        }
+
+        private void storeOneByOne() {
+            for (var file : pending) {
+                try {
+                    ragBuilder.storeStaged(file);
+                    onStored.accept(file.indexedFileId());
+                } catch (RuntimeException e) {
+                    log.error("Error storing file with id: {}", file.indexedFileId(), e);
+                }
+            }
+            pending.clear();
+            pendingChunks = 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbol;
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbolStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.chat.rag.symbols.SymbolExtractor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CodeSearchIndex {
+    private final IndexedFilesStore indexedFilesStore;
+    private final CodeSymbolStore codeSymbolStore;
+    private final SymbolExtractor symbolExtractor;
+
+    @Transactional
+    public void update(UUID indexedFileId, Path path, String content, List<Document> chunks) {
+        indexedFilesStore.storeLines(indexedFileId, content);
+        var symbols = symbolExtractor.extract(path.getFileName().toString(), content);
+        codeSymbolStore.replace(indexedFileId, assignChunks(content, chunks, symbols), SymbolExtractor.VERSION);
+    }
+
+    /**
+     * Adds search lines and symbols of files indexed before they were extracted. Symbols are assigned to the chunks
+     * already stored for the file.
+     */
+    @Transactional
+    public void backfill() {
+        var missing = indexedFilesStore.getAllWithoutLines();
+        if (!missing.isEmpty()) {
+            log.info("Adding {} files to the code search index", missing.size());
+        }
+        for (var indexedFileId : missing) {
+            var path = indexedFilesStore.getPath(indexedFilesStore.findById(indexedFileId));
+            try {
+                update(indexedFileId, path, Files.readString(path), codeSymbolStore.getChunks(path.toString()));
+            } catch (IOException e) {
+                log.warn("Unable to add file {} to the code search index", path, e);
+            }
+        }
+        var added = 0;
+        for (var indexedFileId : codeSymbolStore.getFilesWithOutdatedSymbols(SymbolExtractor.VERSION)) {
+            var path = indexedFilesStore.getPath(indexedFilesStore.findById(indexedFileId));
+            if (!symbolExtractor.supports(path.getFileName().toString())) {
+                codeSymbolStore.markExtracted(indexedFileId, SymbolExtractor.VERSION);
+                continue;
+            }
+            try {
+                var content = Files.readString(path);
+                var symbols = symbolExtractor.extract(path.getFileName().toString(), content);
+                codeSymbolStore.replace(indexedFileId, assignChunks(content, codeSymbolStore.getChunks(path.toString()), symbols),
+                        SymbolExtractor.VERSION);
+                if (!symbols.isEmpty()) {
+                    added++;
+                }
+            } catch (IOException e) {
+                log.warn("Unable to add symbols of file {}", path, e);
+            }
+        }
+        if (added > 0) {
+            log.info("Added symbols of {} files", added);
+        }
+    }
+
+    static List<CodeSymbol> assignChunks(String content, List<Document> chunks, List<CodeSymbol> symbols) {
+        if (chunks.isEmpty()) {
+            return symbols;
+        }
+        var chunkStartLines = new int[chunks.size()];
+        var searchFrom = 0;
+        var line = 1;
+        var lineCountedTo = 0;
+        for (var i = 0; i < chunks.size(); i++) {
+            var text = chunks.get(i).getText();
+            var probe = text == null ? "" : text.strip();
+            probe = probe.substring(0, Math.min(64, probe.length()));
+            var offset = probe.isEmpty() ? -1 : content.indexOf(probe, searchFrom);
+            if (offset < 0) {
+                chunkStartLines[i] = i == 0 ? 1 : chunkStartLines[i - 1];
+                continue;
+            }
+            for (; lineCountedTo < offset; lineCountedTo++) {
+                if (content.charAt(lineCountedTo) == '\n') {
+                    line++;
+                }
+            }
+            chunkStartLines[i] = line;
+            searchFrom = offset + 1;
+        }
+        return symbols.stream()
+                .map(symbol -> {
+                    var chunk = 0;
+                    while (chunk + 1 < chunkStartLines.length && chunkStartLines[chunk + 1] <= symbol.lineNumber()) {
+                        chunk++;
+                    }
+                    return symbol.withChunk(chunk, chunks.get(chunk).getId());
+                })
+                .toList();
+    }
+}
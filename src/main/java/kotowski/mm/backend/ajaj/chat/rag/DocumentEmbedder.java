@@ -0,0 +1,54 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorStoreBulkLoader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Embeds the chunks of staged files in token-sized batches and turns them into {@code vector_store} rows that carry
+ * their {@code indexed_file_id}.
+ */
+@Component
+@RequiredArgsConstructor
+class DocumentEmbedder {
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private final TokenCountBatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+
+    List<VectorStoreBulkLoader.BulkDocument> embed(List<StagedFile> files) {
+        var documents = files.stream()
+                .flatMap(file -> file.documents().stream())
+                .toList();
+        if (documents.isEmpty()) {
+            return List.of();
+        }
+        var embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy);
+        var rows = new ArrayList<VectorStoreBulkLoader.BulkDocument>(documents.size());
+        var index = 0;
+        for (var file : files) {
+            for (var document : file.documents()) {
+                rows.add(new VectorStoreBulkLoader.BulkDocument(file.indexedFileId(), UUID.fromString(document.getId()),
+                        document.getText(), toJson(document), embeddings.get(index++)));
+            }
+        }
+        return rows;
+    }
+
+    private String toJson(Document document) {
+        try {
+            return objectMapper.writeValueAsString(document.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
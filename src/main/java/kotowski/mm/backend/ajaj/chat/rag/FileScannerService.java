@@ -1,6 +1,8 @@
 package kotowski.mm.backend.ajaj.chat.rag;
 
 import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.bench.LogExecutionTime;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -10,50 +12,105 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileScannerService {
+    private static final String GIT_DIRECTORY = ".git";
+
     private final ProjectsProperties projectsProperties;
     private final IndexedFilesStore indexedFilesStore;
+    private final StageTimer stageTimer;
+    private final GitChangeSource gitChangeSource;
 
     @SneakyThrows
     @Transactional
+    @LogExecutionTime
     public void scanProjects() {
-        indexedFilesStore.invalidateAll();
+        indexedFilesStore.invalidateOtherApps(projectsProperties.getProjects().stream()
+                .flatMap(project -> project.getApps().stream().map(app -> project.getId() + "/" + app.getId()))
+                .toList());
         for (var project : projectsProperties.getProjects()) {
-            scanProject(project);
+            for (var app : project.getApps()) {
+                scanApp(project.getId(), app);
+            }
         }
     }
 
-    private void scanProject(ProjectsProperties.Project project) throws IOException {
-        var projectId = project.getId();
-        for (var app : project.getApps()) {
-            var appId = app.getId();
-            for (var watchDir : app.getWatch()) {
-                var rootPath = Path.of(app.getPath()).normalize().toAbsolutePath();
-                scan(rootPath.toString(), watchDir.getPath(), watchDir.getPatterns())
-                    .forEach(path -> {
-                        var relative = rootPath.relativize(path).toString();
-                        try {
-                            var modifiedAt = LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
-                            indexedFilesStore.store(projectId, appId, relative, modifiedAt);
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
+    private void scanApp(String projectId, ProjectsProperties.ProjectApp app) throws IOException {
+        var appId = app.getId();
+        var rootPath = Path.of(app.getPath()).normalize().toAbsolutePath();
+        var git = app.getChangeSource() == ProjectsProperties.ChangeSource.GIT;
+        if (git && gitChangeSource.scanChanges(projectId, app, rootPath)) {
+            return;
+        }
+        indexedFilesStore.invalidateApp(projectId, appId);
+        for (var watchDir : app.getWatch()) {
+            stageTimer.time("indexing", "scan", rootPath + ":" + watchDir.getPath(),
+                    () -> scan(rootPath.toString(), watchDir.getPath(), watchDir.getPatterns(), watchDir.getExclude()))
+                .forEach(path -> store(indexedFilesStore, projectId, appId, rootPath, path));
+        }
+        if (git) {
+            gitChangeSource.markScanned(projectId, app, rootPath);
+        }
+    }
+
+    static void store(IndexedFilesStore indexedFilesStore, String projectId, String appId, Path rootPath, Path path) {
+        var relative = rootPath.relativize(path).toString();
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            var modifiedAt = LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault());
+            indexedFilesStore.store(projectId, appId, relative, modifiedAt, attributes.size());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static boolean isWatched(ProjectsProperties.ProjectApp app, Path rootPath, Path relativePath) {
+        var fileName = relativePath.getFileName();
+        var parent = relativePath.getParent();
+        var file = rootPath.resolve(relativePath);
+        IgnoreRules ignoreRules = null;
+        for (var watchDir : app.getWatch()) {
+            var root = patternToPath(watchDir.getPath());
+            var recursive = watchDir.getPath().endsWith("**");
+            var inDirectory = root.isEmpty()
+                    ? recursive || parent == null
+                    : parent != null && (recursive ? parent.startsWith(Path.of(root)) : parent.equals(Path.of(root)));
+            if (!inDirectory || watchDir.getPatterns().stream()
+                    .noneMatch(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern).matches(fileName))) {
+                continue;
+            }
+            if (ignoreRules == null) {
+                try {
+                    ignoreRules = IgnoreRules.forDirectory(rootPath, file.getParent());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            if (!ignoreRules.withPatterns(rootPath, watchDir.getExclude()).isIgnoredWithParents(rootPath, file)) {
+                return true;
             }
         }
+        return false;
     }
 
-    private static List<Path> scan(String rootPath, String subPathPattern, List<String> patterns) throws IOException {
+    /**
+     * Walks the watched directory, skipping whole subtrees excluded by {@code .gitignore}, {@code .ajajignore} or the
+     * {@code exclude} patterns of the watch entry, which are relative to the app root.
+     */
+    static List<Path> scan(String rootPath, String subPathPattern, List<String> patterns, List<String> exclude) throws IOException {
         var recursive = subPathPattern.endsWith("**");
-        var root = Paths.get(rootPath, patternToPath(subPathPattern));
+        var appRoot = Paths.get(rootPath).normalize().toAbsolutePath();
+        var root = appRoot.resolve(patternToPath(subPathPattern));
 
         log.info("Scanning directory {} for pattern {} (recursion: {}).", rootPath, patterns, recursive);
 
@@ -62,12 +119,53 @@ public class FileScannerService {
                 .toList();
 
         List<Path> matched = new ArrayList<>();
-
-        try (var stream = recursive ? Files.walk(root) : Files.list(root)) {
-            stream.filter(Files::isRegularFile)
-                    .filter(path -> matchers.stream().anyMatch(m -> m.matches(path.getFileName())))
-                    .forEach(matched::add);
+        if (!Files.isDirectory(root)) {
+            return matched;
         }
+        var parentRules = root.equals(appRoot)
+                ? IgnoreRules.forDirectory(appRoot, root)
+                : IgnoreRules.forDirectory(appRoot, root.getParent());
+        for (var current = root; current != null && current.startsWith(appRoot) && !current.equals(appRoot); current = current.getParent()) {
+            if (parentRules.isIgnored(current, true)) {
+                return matched;
+            }
+        }
+        var rules = new ArrayDeque<IgnoreRules>();
+        rules.push(parentRules.withPatterns(appRoot, exclude));
+
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), recursive ? Integer.MAX_VALUE : 1, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (dir.equals(root)) {
+                    rules.push(root.equals(appRoot) ? rules.peek() : rules.peek().withDirectory(dir));
+                    return FileVisitResult.CONTINUE;
+                }
+                if (GIT_DIRECTORY.equals(dir.getFileName().toString()) || rules.peek().isIgnored(dir, true)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                rules.push(rules.peek().withDirectory(dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()
+                        && matchers.stream().anyMatch(m -> m.matches(file.getFileName()))
+                        && !rules.peek().isIgnored(file, false)) {
+                    matched.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                rules.pop();
+                return FileVisitResult.CONTINUE;
+            }
+        });
 
         return matched;
     }
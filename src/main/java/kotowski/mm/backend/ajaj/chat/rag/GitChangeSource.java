@@ -0,0 +1,97 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.AppIndexStateStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import kotowski.mm.backend.ajaj.infrastructure.git.GitChange;
+import kotowski.mm.backend.ajaj.infrastructure.git.GitClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Incremental scan for apps with {@code change-source: git}. Instead of walking the tree it asks git what changed
+ * since the commit recorded at the previous scan, including uncommitted and untracked files, and moves renamed files
+ * without re-embedding them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class GitChangeSource {
+    private final GitClient gitClient;
+    private final AppIndexStateStore appIndexStateStore;
+    private final IndexedFilesStore indexedFilesStore;
+
+    /**
+     * @return false when the app needs a full scan: no git repository, no previous state or an unknown commit
+     */
+    boolean scanChanges(String projectId, ProjectsProperties.ProjectApp app, Path rootPath) {
+        var head = gitClient.head(rootPath);
+        if (head.isEmpty()) {
+            log.warn("{} is not a git repository, falling back to a full scan", rootPath);
+            return false;
+        }
+        var state = appIndexStateStore.find(projectId, app.getId());
+        if (state.isEmpty() || !gitClient.hasCommit(rootPath, state.get().lastCommit())) {
+            return false;
+        }
+        var changes = new ArrayList<>(gitClient.changesSince(rootPath, state.get().lastCommit()));
+        state.get().dirtyPaths().forEach(path -> changes.add(new GitChange(GitChange.Status.MODIFIED, path, null, true)));
+        for (var change : changes) {
+            apply(projectId, app, rootPath, change);
+        }
+        appIndexStateStore.save(projectId, app.getId(), head.get(), gitClient.dirtyPaths(rootPath));
+        log.info("Git scan of {}: {} changes since {}", rootPath, changes.size(), state.get().lastCommit());
+        return true;
+    }
+
+    void markScanned(String projectId, ProjectsProperties.ProjectApp app, Path rootPath) {
+        gitClient.head(rootPath).ifPresent(head ->
+                appIndexStateStore.save(projectId, app.getId(), head, gitClient.dirtyPaths(rootPath)));
+    }
+
+    private void apply(String projectId, ProjectsProperties.ProjectApp app, Path rootPath, GitChange change) {
+        var path = relative(change.path());
+        var watched = FileScannerService.isWatched(app, rootPath, Path.of(path));
+        if (change.status() == GitChange.Status.RENAMED) {
+            var oldPath = relative(change.oldPath());
+            var oldWatched = FileScannerService.isWatched(app, rootPath, Path.of(oldPath));
+            if (oldWatched && watched && indexedFilesStore.move(projectId, app.getId(), oldPath, path)) {
+                log.info("Moved {} to {} without re-indexing", oldPath, path);
+                storeCurrent(projectId, app, rootPath, path, change.contentChanged());
+                return;
+            }
+            if (oldWatched) {
+                indexedFilesStore.markDeleted(projectId, app.getId(), oldPath);
+            }
+        } else if (change.status() == GitChange.Status.DELETED) {
+            if (watched) {
+                indexedFilesStore.markDeleted(projectId, app.getId(), path);
+            }
+            return;
+        }
+        if (watched) {
+            storeCurrent(projectId, app, rootPath, path, true);
+        }
+    }
+
+    private void storeCurrent(String projectId, ProjectsProperties.ProjectApp app, Path rootPath, String path, boolean contentChanged) {
+        var file = rootPath.resolve(path);
+        if (!Files.isRegularFile(file)) {
+            indexedFilesStore.markDeleted(projectId, app.getId(), path);
+            return;
+        }
+        FileScannerService.store(indexedFilesStore, projectId, app.getId(), rootPath, file);
+        if (contentChanged) {
+            indexedFilesStore.markChanged(projectId, app.getId(), path);
+        }
+    }
+
+    private static String relative(String gitPath) {
+        return Path.of(gitPath).toString();
+    }
+}
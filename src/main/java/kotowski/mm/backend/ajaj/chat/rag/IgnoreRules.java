@@ -0,0 +1,158 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable stack of gitignore-style rules. Supports comments, {@code !} negation, {@code \#} and {@code \!} for
+ * patterns starting with those characters, trailing {@code /} for directories only, patterns anchored by a {@code /},
+ * patterns without a slash matching a name at any depth and a leading {@code **} directory that also matches at the
+ * base. The last matching rule wins.
+ */
+final class IgnoreRules {
+    static final List<String> IGNORE_FILES = List.of(".gitignore", ".ajajignore");
+    private static final IgnoreRules EMPTY = new IgnoreRules(List.of());
+
+    private final List<Rule> rules;
+
+    private IgnoreRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    static IgnoreRules empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Rules of the ignore files in every directory from the repository root (or {@code appRoot} when it is not in a
+     * repository) down to {@code directory}.
+     */
+    static IgnoreRules forDirectory(Path appRoot, Path directory) throws IOException {
+        var chain = new ArrayList<Path>();
+        for (var current = directory; current != null; current = current.getParent()) {
+            chain.add(0, current);
+            if (Files.exists(current.resolve(".git")) || (current.equals(appRoot) && !isInRepository(appRoot))) {
+                break;
+            }
+        }
+        var rules = empty();
+        for (var current : chain) {
+            rules = rules.withDirectory(current);
+        }
+        return rules;
+    }
+
+    IgnoreRules withDirectory(Path directory) throws IOException {
+        var added = new ArrayList<Rule>();
+        for (var ignoreFile : IGNORE_FILES) {
+            var file = directory.resolve(ignoreFile);
+            if (Files.isRegularFile(file)) {
+                for (var line : Files.readAllLines(file)) {
+                    var rule = Rule.parse(directory, line);
+                    if (rule != null) {
+                        added.add(rule);
+                    }
+                }
+            }
+        }
+        return withRules(added);
+    }
+
+    IgnoreRules withPatterns(Path base, List<String> patterns) {
+        if (patterns == null) {
+            return this;
+        }
+        return withRules(patterns.stream()
+                .map(pattern -> Rule.parse(base, pattern))
+                .filter(rule -> rule != null)
+                .toList());
+    }
+
+    boolean isIgnored(Path path, boolean directory) {
+        var ignored = false;
+        for (var rule : rules) {
+            if (rule.matches(path, directory)) {
+                ignored = !rule.negated();
+            }
+        }
+        return ignored;
+    }
+
+    /**
+     * Checks the file and each of its parent directories up to {@code root}, for paths that were not reached by a
+     * pruned walk.
+     */
+    boolean isIgnoredWithParents(Path root, Path file) {
+        for (var current = file.getParent(); current != null && current.startsWith(root) && !current.equals(root); current = current.getParent()) {
+            if (isIgnored(current, true)) {
+                return true;
+            }
+        }
+        return isIgnored(file, false);
+    }
+
+    private IgnoreRules withRules(List<Rule> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        var combined = new ArrayList<>(rules);
+        combined.addAll(added);
+        return new IgnoreRules(combined);
+    }
+
+    private static boolean isInRepository(Path directory) {
+        for (var current = directory; current != null; current = current.getParent()) {
+            if (Files.exists(current.resolve(".git"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Rule(Path base, PathMatcher matcher, boolean anchored, boolean negated, boolean directoryOnly) {
+
+        static Rule parse(Path base, String line) {
+            var pattern = line.strip();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            var negated = pattern.startsWith("!");
+            if (negated || pattern.startsWith("\\#") || pattern.startsWith("\\!")) {
+                pattern = pattern.substring(1);
+            }
+            var directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            var anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            return new Rule(base, matcher(pattern), anchored, negated, directoryOnly);
+        }
+
+        private static PathMatcher matcher(String pattern) {
+            var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            if (!pattern.startsWith("**/")) {
+                return matcher;
+            }
+            var atBase = matcher(pattern.substring(3));
+            return path -> matcher.matches(path) || atBase.matches(path);
+        }
+
+        boolean matches(Path path, boolean directory) {
+            if ((directoryOnly && !directory) || !path.startsWith(base) || path.equals(base)) {
+                return false;
+            }
+            return anchored ? matcher.matches(base.relativize(path)) : matcher.matches(path.getFileName());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexTaskStore;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Coordinates indexing between several instances sharing one database. The instance that wins the advisory lock
+ * scans and enqueues modified files; every instance then claims tasks with {@code FOR UPDATE SKIP LOCKED}. Claims
+ * are leases, so tasks of a crashed instance are picked up again once the lease expires.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+class IndexQueue {
+    private final IndexTaskStore indexTaskStore;
+
+    @Getter
+    @Value("${app.ai.indexing.distributed}")
+    private boolean enabled;
+
+    @Value("${app.ai.indexing.lease}")
+    private Duration lease;
+
+    @Value("${app.ai.indexing.claim-size}")
+    private int claimSize;
+
+    @Value("${app.ai.indexing.max-attempts}")
+    private int maxAttempts;
+
+    @Getter
+    private final String workerId = workerId();
+
+    @Transactional
+    public boolean scanIfLeader(Runnable scan) {
+        if (!indexTaskStore.tryLeaderLock()) {
+            log.info("Another instance is scanning, {} joins as worker", workerId);
+            return false;
+        }
+        scan.run();
+        var queued = indexTaskStore.enqueueModified(maxAttempts);
+        log.info("{} scanned projects and queued {} files for indexing", workerId, queued);
+        return true;
+    }
+
+    @Transactional
+    public void awaitLeader() {
+        indexTaskStore.awaitLeader();
+    }
+
+    @Transactional
+    public List<UUID> claim() {
+        var claimed = indexTaskStore.claim(workerId, lease, claimSize, maxAttempts);
+        if (!claimed.isEmpty()) {
+            log.info("{} claimed {} files, {} tasks left in queue", workerId, claimed.size(), indexTaskStore.pending());
+            return claimed;
+        }
+        var exhausted = indexTaskStore.getExhausted(maxAttempts);
+        if (!exhausted.isEmpty()) {
+            log.warn("{} files failed {} times and are retried after the next scan: {}", exhausted.size(), maxAttempts, exhausted);
+        }
+        return claimed;
+    }
+
+    public void renew(Collection<UUID> indexedFileIds) {
+        indexTaskStore.renew(indexedFileIds, workerId, lease);
+    }
+
+    /**
+     * Gives up the lease of files that failed, so they can be claimed again until they run out of attempts.
+     */
+    public void release(Collection<UUID> indexedFileIds) {
+        indexTaskStore.release(indexedFileIds, workerId);
+    }
+
+    public void complete(UUID indexedFileId) {
+        indexTaskStore.complete(indexedFileId, workerId);
+    }
+
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
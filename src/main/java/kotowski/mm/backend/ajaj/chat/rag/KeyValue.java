@@ -1,7 +0,0 @@
-package kotowski.mm.backend.ajaj.chat.rag;
-
-public record KeyValue(
-        String key,
-        String value
-) {
-}
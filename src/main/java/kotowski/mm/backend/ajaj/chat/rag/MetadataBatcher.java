@@ -0,0 +1,171 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFile;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Packs small files of the same app into one metadata prompt, so the fixed instruction part of the prompt is paid
+ * once per batch instead of once per file.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class MetadataBatcher {
+    private static final int BYTES_PER_TOKEN = 4;
+
+    private final IndexedFilesStore indexedFilesStore;
+    private final RagDataTransformer ragDataTransformer;
+    private final ProjectsProperties projectsProperties;
+    private final StageTimer stageTimer;
+
+    @Value("${app.ai.metadata-batch.enabled}")
+    private boolean enabled;
+
+    @Value("${app.ai.metadata-batch.token-budget}")
+    private int tokenBudget;
+
+    @Value("${app.ai.metadata-batch.max-file-tokens}")
+    private int maxFileTokens;
+
+    @Value("${app.ai.metadata-batch.max-files}")
+    private int maxFiles;
+
+    /**
+     * Batches are grouped by app, so consecutive prompts share the app context prefix. The rows of all files are
+     * loaded with one query, files whose row no longer exists are left out.
+     */
+    List<List<IndexedFile>> plan(List<UUID> fileIds) {
+        var indexedFiles = indexedFilesStore.findAllById(fileIds).stream()
+                .collect(Collectors.toMap(IndexedFile::getId, Function.identity()));
+        var batches = new LinkedHashMap<String, List<List<IndexedFile>>>();
+        var open = new LinkedHashMap<String, Batch>();
+        for (var fileId : fileIds) {
+            var indexedFile = indexedFiles.get(fileId);
+            if (indexedFile == null) {
+                continue;
+            }
+            var appBatches = batches.computeIfAbsent(indexedFile.getAppId(), appId -> new ArrayList<>());
+            if (!enabled || !isBatchable(indexedFile)) {
+                appBatches.add(List.of(indexedFile));
+                continue;
+            }
+            var tokens = estimateTokens(indexedFile);
+            var batch = open.computeIfAbsent(indexedFile.getAppId(), appId -> new Batch());
+            if (!batch.files.isEmpty() && (batch.tokens + tokens > tokenBudget || batch.files.size() >= maxFiles)) {
+                appBatches.add(batch.files);
+                batch = new Batch();
+                open.put(indexedFile.getAppId(), batch);
+            }
+            batch.files.add(indexedFile);
+            batch.tokens += tokens;
+        }
+        open.forEach((appId, batch) -> {
+            if (!batch.files.isEmpty()) {
+                batches.get(appId).add(batch.files);
+            }
+        });
+        return batches.values().stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Describes the files of a batch with one prompt. The content read for the prompt is handed on, so the file is
+     * not read again when it is stored.
+     *
+     * @return every file of the batch in order, with empty metadata and no content when it was not described here
+     */
+    List<BatchedFile> describe(List<IndexedFile> batch) {
+        if (batch.size() < 2) {
+            return batch.stream()
+                    .map(BatchedFile::undescribed)
+                    .toList();
+        }
+        var contents = new HashMap<UUID, String>();
+        var files = new ArrayList<SourceFile>();
+        String appId = null;
+        for (var indexedFile : batch) {
+            if (indexedFile.getModifiedAt() == null) {
+                continue;
+            }
+            var path = indexedFilesStore.getPath(indexedFile);
+            try {
+                var content = Files.readString(path);
+                contents.put(indexedFile.getId(), content);
+                if (!RagBuilder.contentHash(content).equals(indexedFile.getContentHash())) {
+                    files.add(new SourceFile(indexedFile.getId(), path.toString(), content));
+                    appId = indexedFile.getAppId();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read {} for batched metadata", path, e);
+            }
+        }
+        var metadata = files.size() < 2 ? Map.<UUID, Map<String, String>>of() : describe(appId, files);
+        return batch.stream()
+                .map(indexedFile -> new BatchedFile(indexedFile, contents.get(indexedFile.getId()),
+                        metadata.getOrDefault(indexedFile.getId(), Map.of())))
+                .toList();
+    }
+
+    private Map<UUID, Map<String, String>> describe(String appId, List<SourceFile> files) {
+        var projectContext = projectsProperties.getProjectAndAppContext(appId);
+        try {
+            var byFilename = stageTimer.time(RagBuilder.INDEXING, "metadata-batch", appId,
+                    () -> ragDataTransformer.getMetadataForSourceCodes(projectContext, files));
+            var result = new HashMap<UUID, Map<String, String>>();
+            for (var file : files) {
+                var metadata = byFilename.get(file.filename());
+                if (metadata != null) {
+                    result.put(file.id(), metadata);
+                }
+            }
+            log.info("Batched metadata generated for {}/{} files", result.size(), files.size());
+            return result;
+        } catch (Exception e) {
+            log.warn("Batched metadata generation failed for {} files, falling back to single-file prompts", files.size(), e);
+            return Map.of();
+        }
+    }
+
+    private boolean isBatchable(IndexedFile indexedFile) {
+        return indexedFile.getModifiedAt() != null
+                && indexedFile.getSizeBytes() != null
+                && estimateTokens(indexedFile) <= maxFileTokens;
+    }
+
+    private static int estimateTokens(IndexedFile indexedFile) {
+        return (int) (indexedFile.getSizeBytes() / BYTES_PER_TOKEN) + 1;
+    }
+
+    /**
+     * @param content  the content read for the batch prompt, {@code null} when the file was not read
+     * @param metadata the batched metadata, empty when the file is to be described alone
+     */
+    record BatchedFile(IndexedFile indexedFile, String content, Map<String, String> metadata) {
+        static BatchedFile undescribed(IndexedFile indexedFile) {
+            return new BatchedFile(indexedFile, null, Map.of());
+        }
+    }
+
+    private static class Batch {
+        private final List<IndexedFile> files = new ArrayList<>();
+        private int tokens;
+    }
+}
@@ -1,63 +1,157 @@
 package kotowski.mm.backend.ajaj.chat.rag;
 
 import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFile;
-import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFileDocument;
 import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorStoreBulkLoader;
 import kotowski.mm.backend.ajaj.infrastructure.bench.LogExecutionTime;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RagBuilder {
+    static final String INDEXING = "indexing";
 
-    private final VectorStore vectorStore;
+    private final DocumentEmbedder documentEmbedder;
+    private final VectorStoreBulkLoader vectorStoreBulkLoader;
     private final IndexedFilesStore indexedFilesStore;
     private final RagDataTransformer ragDataTransformer;
     private final ProjectsProperties projectsProperties;
+    private final StageTimer stageTimer;
+    private final CodeSearchIndex codeSearchIndex;
 
+    /**
+     * @throws RuntimeException when the file could not be described or stored, it stays modified
+     */
     @Transactional
-    public void describeFile(UUID indexedFileId) {
-        try {
-            var indexedFile = indexedFilesStore.findById(indexedFileId);
-            var path = indexedFilesStore.getPath(indexedFile);
-            var singleFileDocuments = getDocuments(indexedFile.getProjectId(), indexedFile.getAppId(), path);
-            storeSingleFileDocuments(indexedFile, singleFileDocuments);
-        } catch (Exception e) {
-            log.error("Error describing file with id: {}", indexedFileId, e);
-        }
+    @LogExecutionTime
+    public void describeFile(UUID indexedFileId, Map<String, String> precomputedMetadata) {
+        describeFile(indexedFilesStore.findById(indexedFileId), null, precomputedMetadata);
     }
 
-    @SneakyThrows
+    /**
+     * @param content the file content when it was already read, {@code null} to read it here
+     * @throws RuntimeException when the file could not be described or stored, it stays modified
+     */
+    @Transactional
     @LogExecutionTime
-    private List<Document> getDocuments(String projectId, String appId, Path path) {
+    public void describeFile(IndexedFile indexedFile, String content, Map<String, String> precomputedMetadata) {
+        stageFile(indexedFile, content, precomputedMetadata).ifPresent(this::storeStaged);
+    }
+
+    /**
+     * Reads, describes and chunks a modified file without writing its documents. Deleted and unchanged files are
+     * handled right away.
+     *
+     * @return the chunks to store, empty when there is nothing to store
+     * @throws RuntimeException when the file could not be read or described
+     */
+    @Transactional
+    public Optional<StagedFile> stageFile(UUID indexedFileId, Map<String, String> precomputedMetadata) {
+        return stageFile(indexedFilesStore.findById(indexedFileId), null, precomputedMetadata);
+    }
+
+    /**
+     * @param knownContent the file content when it was already read, {@code null} to read it here
+     * @see #stageFile(UUID, Map)
+     */
+    @Transactional
+    public Optional<StagedFile> stageFile(IndexedFile indexedFile, String knownContent, Map<String, String> precomputedMetadata) {
+        var indexedFileId = indexedFile.getId();
+        if (indexedFile.getModifiedAt() == null) {
+            stageTimer.run(INDEXING, "db-write", indexedFile.getPath(), () -> indexedFilesStore.delete(indexedFileId));
+            return Optional.empty();
+        }
+        var path = indexedFilesStore.getPath(indexedFile);
+        var content = knownContent != null
+                ? knownContent
+                : stageTimer.time(INDEXING, "read", path.toString(), () -> Files.readString(path));
+        var contentHash = contentHash(content);
+        if (contentHash.equals(indexedFile.getContentHash())) {
+            log.info("File content unchanged, skipping: {}", path);
+            indexedFile.setModifiedAtStored(indexedFile.getModifiedAt());
+            indexedFilesStore.store(indexedFile);
+            return Optional.empty();
+        }
+        return Optional.of(new StagedFile(indexedFileId, contentHash,
+                getDocuments(indexedFile, path, content, precomputedMetadata)));
+    }
+
+    @Transactional
+    public void storeStaged(StagedFile stagedFile) {
+        var indexedFileId = stagedFile.indexedFileId();
+        var documents = stageTimer.time(INDEXING, "embedding", indexedFileId.toString(),
+                () -> documentEmbedder.embed(List.of(stagedFile)));
+        stageTimer.run(INDEXING, "db-write", indexedFileId.toString(), () -> {
+            indexedFilesStore.deleteDocuments(indexedFileId);
+            vectorStoreBulkLoader.insert(documents);
+            indexedFilesStore.markStored(indexedFileId, stagedFile.contentHash());
+        });
+    }
+
+    private List<Document> getDocuments(IndexedFile indexedFile, Path path, String content, Map<String, String> precomputedMetadata) {
+        var appId = indexedFile.getAppId();
         log.info("Indexing file: " + path);
-        var content = Files.readString(path);
+        var subject = path.toString();
         // Prepare metadata
         var metadata = new HashMap<String, Object>();
         metadata.putAll(Map.of(
                 "filepath", path.toString(),
-                "projectId", projectId,
+                "projectId", indexedFile.getProjectId(),
                 "appId", appId,
                 "contains", "source code"
         ));
         var projectContext = projectsProperties.getProjectAndAppContext(appId);
-        ragDataTransformer.getMetadataForSourceCode(projectContext, path.toString() , content).forEach(
+        var fileMetadata = !precomputedMetadata.isEmpty()
+                ? precomputedMetadata
+                : stageTimer.time(INDEXING, "metadata", subject,
+                        () -> ragDataTransformer.getMetadataForSourceCode(projectContext, path.toString() , content));
+        mergeMetadata(metadata, fileMetadata);
+        // Splitting
+        var chunks = stageTimer.time(INDEXING, "chunking", subject, () -> split(new Document(content, metadata)));
+        stageTimer.run(INDEXING, "search-index", subject, () -> codeSearchIndex.update(indexedFile.getId(), path, content, chunks));
+        return chunks;
+    }
+
+    static String contentHash(String content) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<Document> split(Document document) {
+        var splitter = new TokenTextSplitter();
+        var splitted = splitter.split(document);
+        for (var i = 0; i < splitted.size(); i++) {
+            splitted.get(i).getMetadata().put("chunkNumber", i);
+        }
+        return splitted;
+    }
+
+    static void mergeMetadata(Map<String, Object> metadata, Map<String, String> fileMetadata) {
+        fileMetadata.forEach(
                 (key, value) -> metadata.merge(
                         key,
                         value,
@@ -67,34 +161,5 @@ public class RagBuilder {
                             }
                             return oldVal + "," + newVal;
                         }));
-        // Splitting
-        var splitter = new TokenTextSplitter();
-        var splitted = splitter.split(new Document(content, metadata));
-        for (var i = 0; i < splitted.size(); i++) {
-            splitted.get(i).getMetadata().put("chunkNumber", i);
-        }
-        return splitted;
-    }
-
-    private void storeSingleFileDocuments(IndexedFile indexedFile, List<Document> documents) {
-        if (indexedFile.getModifiedAt() == null) {
-            var docIds = indexedFile.getDocuments().stream()
-                    .map(IndexedFileDocument::getDocumentId)
-                    .toList();
-            vectorStore.delete(docIds);
-            indexedFilesStore.delete(indexedFile);
-            return;
-        }
-        indexedFile.setModifiedAtStored(indexedFile.getModifiedAt());
-        indexedFile.getDocuments().clear();
-        indexedFile.getDocuments().addAll(documents.stream()
-                .map(doc -> IndexedFileDocument.builder()
-                        .file(indexedFile)
-                        .documentId(doc.getId())
-                        .build())
-                .toList());
-        vectorStore.add(documents);
-        indexedFilesStore.store(indexedFile);
-        documents.clear();
     }
 }
@@ -1,5 +1,7 @@
 package kotowski.mm.backend.ajaj.chat.rag;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import kotowski.mm.backend.ajaj.chat.PromptPrefixAdvisor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.context.annotation.Bean;
@@ -8,8 +10,9 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 class RagChatClientConfiguration {
     @Bean
-    ChatClient ragChatClient(OllamaChatModel ollamaChatModel) {
+    ChatClient ragChatClient(OllamaChatModel ollamaChatModel, MeterRegistry meterRegistry) {
         return ChatClient.builder(ollamaChatModel)
+                .defaultAdvisors(new PromptPrefixAdvisor("rag", meterRegistry))
                 .build();
     }
 }
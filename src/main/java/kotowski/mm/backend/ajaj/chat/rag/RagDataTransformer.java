@@ -1,36 +1,83 @@
 package kotowski.mm.backend.ajaj.chat.rag;
 
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.metadata.LocalMetadataExtractor;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.ModelRouter;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.ModelTask;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.AssistantMessage;
-import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class RagDataTransformer {
+    private static final List<String> FILE_TYPES = List.of("controller", "service", "repository", "model", "widget",
+            "component", "config", "util", "test", "migration", "documentation", "script", "other");
+    private static final Map<String, Object> DESCRIPTION_PROPERTIES = Map.of(
+            "responsibility", Map.of("type", "string"),
+            "type", Map.of("type", "string", "enum", FILE_TYPES));
+    private static final Map<String, Object> DESCRIPTION_SCHEMA = Map.of(
+            "type", "object",
+            "properties", DESCRIPTION_PROPERTIES,
+            "required", List.of("responsibility", "type"));
+    private static final Map<String, Object> BATCH_DESCRIPTION_SCHEMA = Map.of(
+            "type", "array",
+            "items", Map.of(
+                    "type", "object",
+                    "properties", Map.of(
+                            "file", Map.of("type", "string"),
+                            "responsibility", DESCRIPTION_PROPERTIES.get("responsibility"),
+                            "type", DESCRIPTION_PROPERTIES.get("type")),
+                    "required", List.of("file", "responsibility", "type")));
+
+    private static final String DESCRIBE_INSTRUCTIONS = """
+            You are an AI assistant describing source code files for a source code knowledge base used in a RAG (Retrieval-Augmented Generation) system.
+            
+            Language, package, dependencies, annotations and entities were already extracted from the files. Provide only:
+            
+            - "responsibility" → short description of the purpose of the ENTIRE file (1 line)
+            - "type" → the role of the file
+            
+            Keep the values short and factual. Respond with JSON only.
+            
+            ### CODE CONTEXT START
+            %s
+            ### CODE CONTEXT END
+            """;
+
     private final ChatClient ragChatClient;
     private final ProjectsProperties projectsProperties;
     private final ObjectMapper objectMapper;
+    private final LocalMetadataExtractor localMetadataExtractor;
+    private final ModelRouter modelRouter;
 
     public String transformQuestion(String question) {
+        var query = transformQuestion(ModelTask.REWRITE, question);
+        var escalateTo = modelRouter.escalation(ModelTask.REWRITE);
+        if (!StringUtils.hasText(query) && escalateTo.isPresent()) {
+            modelRouter.escalated(ModelTask.REWRITE, "empty query");
+            query = transformQuestion(escalateTo.get(), question);
+        }
+        return query;
+    }
+
+    private String transformQuestion(ModelTask task, String question) {
         return ragChatClient.prompt()
-                .user("""
+                .options(modelRouter.options(task).build())
+                .system("""
                         Your task is to prepare a query for Retrieval Augmented Generation (RAG),
                         based on a multilingual embedding model and a VectorStore, to retrieve the data necessary
                         to answer the question provided by the user. Respond with ONLY the optimized query, no explanations,
@@ -39,130 +86,141 @@ public class RagDataTransformer {
                         You are a part of the system responsible for generating code for projects described by this context:
                         %s
                         The data in the RAG contains source codes and related metadata for those codes of the applications being built.
-                        
+                        """.formatted(projectsProperties.getContext()))
+                .user("""
                         QUESTION:
                         %s
-                        """.formatted(projectsProperties.getContext(), question)
-                )
+                        """.formatted(question))
                 .call()
                 .content();
-
     }
 
-    @SneakyThrows
     public Map<String, String> getMetadataForSourceCode(String projectContext, String filename, String sourceCode) {
-        var prompt = Prompt.builder()
-                .content("""
-                        You are an AI assistant responsible for generating structured metadata for a source code knowledge base used in a RAG (Retrieval-Augmented Generation) system.
-                        
-                        Each document represents a source code file.
-                        The same file may be split into multiple chunks.
-                        Metadata must therefore describe the ENTIRE file, not just chunk.
-                        
-                        Your goal is to produce consistent metadata that will allow all chunks belonging to the same file to be retrieved together and correctly ordered later.
-                        
-                        ---
-                        
-                        ### Rules
-                        
-                        1. Output **ONLY** a valid JSON array of objects, with no comments or explanations.
-                        2. Each object must have two keys: "key" and "value".
-                        3. Metadata must be **identical** across all chunks belonging to the same file.
-                        4. Each chunk will automatically receive a "chunkNumber" field later — do not include it yourself, but assume it will exist.
-                        5. Ensure the metadata enables RAG to retrieve and group all chunks of a file based on shared fields.
-                        6. Keep all values short, factual, and consistent across chunks.
-                        7. Use lowercase for all keys.
-                        
-                        ---
-                        
-                        ### List of keys, additional keys may be added if relevant, "responsibility" is mandatory, others are optional
-                        
-                        - "language" → e.g. "java", "dart", "yaml"
-                        - "entities" → comma-separated names of classes, functions, or variables
-                        - "package" → package/module path (or null)
-                        - "responsibility" → short description of purpose (1 line)
-                        - "dependencies" → comma-separated list of imports or libraries
-                        - "annotations" → comma-separated list of annotations/decorators
-                        - "type" → e.g. "controller", "service", "model", "widget", "config", "util"
-                        
-                        ---
-                        
-                        ### Output format example
-                        
-                        [
-                          { "key": "language", "value": "java" },
-                          { "key": "entities", "value": "FileStorageService, saveFile" },
-                          { "key": "package", "value": "com.example.project.service" },
-                          { "key": "responsibility", "value": "Handles file storage operations" },
-                          { "key": "dependencies", "value": "org.springframework.stereotype.Service" },
-                          { "key": "annotations", "value": "Service" },
-                          { "key": "type", "value": "service" }
-                        ]
-                        
-                        ---
-                        
-                        ### Instructions
-                        
-                        - The code snippet you will receive is a single file.
-                        - Base your metadata on what you can infer about the entire file, not only this chunk.
-                        - Do NOT include the source code or chunk number.
-                        - Output only the JSON array shown above.
-                        - If language or role cannot be confidently inferred, make your best guess.
-                        
-                        ---
-                        
-                        Now analyze the following source code that will be divided into CHUNKS and return ONLY the JSON array of metadata objects.
-                        Avoid using characters that are not allowed in the JSON format.
-                        Keys and values cannot contain null.
-                        You must respond ONLY with valid JSON as described. Do not include explanations, markdown, or code fences. If you output anything else, it will break the system.
-                        
-                        ### CODE CONTEXT START
-                        %s
-                        ### CODE CONTEXT END
+        var metadata = localMetadataExtractor.extract(filename, sourceCode);
+        if (localMetadataExtractor.isTrivial(filename, sourceCode)) {
+            metadata.put(LocalMetadataExtractor.RESPONSIBILITY, localMetadataExtractor.describeTrivial(filename, sourceCode));
+            return metadata;
+        }
+        var description = describe(ModelTask.METADATA, projectContext, filename, metadata, sourceCode);
+        var escalateTo = modelRouter.escalation(ModelTask.METADATA);
+        if (description.isEmpty() && escalateTo.isPresent()) {
+            modelRouter.escalated(ModelTask.METADATA, "no usable description of " + filename);
+            description = describe(escalateTo.get(), projectContext, filename, metadata, sourceCode);
+        }
+        if (description.isEmpty() || !addDescription(metadata, description.get())) {
+            log.warn("No usable description of {}, keeping extracted metadata only", filename);
+        }
+        return metadata;
+    }
+
+    private Optional<FileDescription> describe(ModelTask task, String projectContext, String filename,
+                                               Map<String, String> metadata, String sourceCode) {
+        var content = ragChatClient.prompt()
+                .options(modelRouter.options(task)
+                        .format(DESCRIPTION_SCHEMA)
+                        .build())
+                .system(DESCRIBE_INSTRUCTIONS.formatted(projectContext))
+                .user("""
                         Source code filename: %s
+                        Extracted metadata: %s
                         ### SOURCE CODE TO ANALYZE START
                         %s
                         ### SOURCE CODE TO ANALYZE END
-                        """.formatted(projectContext, filename, sourceCode)
-                )
-                .build();
-        var content = ragChatClient.prompt(prompt)
+                        """.formatted(filename, metadata, sourceCode))
                 .call()
                 .content();
         try {
-            var keyValues = objectMapper.readValue(content, new TypeReference<List<KeyValue>>() {
-            });
-            return getMetadataMap(keyValues);
-        } catch (JsonParseException e) {
-            return tryAgainOrThrow(e, prompt, content);
+            var description = objectMapper.readValue(content, FileDescription.class);
+            return description == null || !StringUtils.hasText(description.responsibility())
+                    ? Optional.empty()
+                    : Optional.of(description);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.debug("Unparsable description of {} from {}: {}", filename, task.getTag(), content);
+            return Optional.empty();
+        }
+    }
+
+    public Map<String, Map<String, String>> getMetadataForSourceCodes(String projectContext, List<SourceFile> files) {
+        var result = new HashMap<String, Map<String, String>>();
+        var described = new HashMap<String, Map<String, String>>();
+        var toDescribe = new ArrayList<SourceFile>();
+        for (var file : files) {
+            var metadata = localMetadataExtractor.extract(file.filename(), file.content());
+            if (localMetadataExtractor.isTrivial(file.filename(), file.content())) {
+                metadata.put(LocalMetadataExtractor.RESPONSIBILITY, localMetadataExtractor.describeTrivial(file.filename(), file.content()));
+                result.put(file.filename(), metadata);
+            } else {
+                described.put(file.filename(), metadata);
+                toDescribe.add(file);
+            }
         }
+        if (toDescribe.isEmpty()) {
+            return result;
+        }
+        var descriptions = describeBatch(ModelTask.METADATA, projectContext, toDescribe, described);
+        var escalateTo = modelRouter.escalation(ModelTask.METADATA);
+        if (descriptions.isEmpty() && escalateTo.isPresent()) {
+            modelRouter.escalated(ModelTask.METADATA, "unparsable batch of " + toDescribe.size() + " files");
+            descriptions = describeBatch(escalateTo.get(), projectContext, toDescribe, described);
+        }
+        if (descriptions.isEmpty()) {
+            log.warn("Unable to parse batched metadata for {} files, falling back to single-file prompts", toDescribe.size());
+            return result;
+        }
+        for (var description : descriptions.get()) {
+            var metadata = description == null ? null : described.get(description.file());
+            if (metadata != null && addDescription(metadata, description)) {
+                result.put(description.file(), metadata);
+            }
+        }
+        return result;
     }
 
-    private Map<String, String> tryAgainOrThrow(JsonProcessingException e, Prompt prompt, String response) throws JsonProcessingException {
+    private Optional<List<FileDescription>> describeBatch(ModelTask task, String projectContext, List<SourceFile> toDescribe,
+                                                          Map<String, Map<String, String>> described) {
+        var sources = toDescribe.stream()
+                .map(file -> """
+                        ### FILE START: %s
+                        Extracted metadata: %s
+                        %s
+                        ### FILE END: %s
+                        """.formatted(file.filename(), described.get(file.filename()), file.content(), file.filename()))
+                .collect(Collectors.joining("\n"));
+        var content = ragChatClient.prompt()
+                .options(modelRouter.options(task)
+                        .format(BATCH_DESCRIPTION_SCHEMA)
+                        .build())
+                .system(DESCRIBE_INSTRUCTIONS.formatted(projectContext))
+                .user("""
+                        You will receive several SEPARATE source code files. Return one object per file with "file" set
+                        to the filename exactly as given after FILE START, plus "responsibility" and "type".
+                        
+                        ### SOURCE FILES TO ANALYZE START
+                        %s
+                        ### SOURCE FILES TO ANALYZE END
+                        """.formatted(sources))
+                .call()
+                .content();
         try {
-            return retry(prompt, response);
-        } catch (Exception ne) {
-            log.warn("Unable to generate metadata for source code.\nJSON:\n{}", response, ne);
-            throw e;
+            return Optional.ofNullable(objectMapper.readValue(content, new TypeReference<List<FileDescription>>() {
+            }));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.debug("Unparsable batched metadata from {}: {}", task.getTag(), content);
+            return Optional.empty();
         }
     }
 
-    private Map<String, String> retry(Prompt prompt, String response) throws JsonProcessingException {
-        var msgs = new ArrayList<Message>();
-        msgs.add(prompt.getUserMessage());
-        msgs.add(new AssistantMessage(response));
-        msgs.add(new UserMessage("Your previous response was not valid JSON. Please correct it."));
-        var newJson = ragChatClient.prompt()
-                .messages(msgs)
-                .call().content();
-        var newKeyValues = objectMapper.readValue(newJson, new TypeReference<List<KeyValue>>() {
-        });
-        return getMetadataMap(newKeyValues);
+    private static boolean addDescription(Map<String, String> metadata, FileDescription description) {
+        if (description.responsibility() == null || description.responsibility().isBlank()) {
+            return false;
+        }
+        metadata.put(LocalMetadataExtractor.RESPONSIBILITY, description.responsibility().strip());
+        if (description.type() != null) {
+            metadata.putIfAbsent(LocalMetadataExtractor.TYPE, description.type());
+        }
+        return true;
     }
 
-    private static Map<String, String> getMetadataMap(List<KeyValue> keyValues) {
-        return keyValues.stream()
-                .filter(keyValue -> keyValue.key() != null && keyValue.value() != null)
-                .collect(Collectors.toMap(KeyValue::key, KeyValue::value, (v1, v2) -> v1 + ", " + v2));
+    record FileDescription(String file, String responsibility, String type) {
     }
 }
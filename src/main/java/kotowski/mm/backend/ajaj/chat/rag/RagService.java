@@ -1,25 +1,46 @@
 package kotowski.mm.backend.ajaj.chat.rag;
 
+import kotowski.mm.backend.ajaj.chat.ChatTurnMetrics;
+import kotowski.mm.backend.ajaj.chat.rag.snapshot.IndexSnapshotService;
 import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorSearch;
+import kotowski.mm.backend.ajaj.infrastructure.bench.LogExecutionTime;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaPriority;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RagService {
-    private final VectorStore vectorStore;
     private final FileScannerService fileScannerService;
     private final IndexedFilesStore indexedFilesStore;
     private final RagDataTransformer ragDataTransformer;
     private final RagBuilder ragBuilder;
+    private final ChatTurnMetrics chatTurnMetrics;
+    private final CodeSearchIndex codeSearchIndex;
+    private final OllamaScheduler ollamaScheduler;
+    private final MetadataBatcher metadataBatcher;
+    private final IndexSnapshotService indexSnapshotService;
+    private final IndexQueue indexQueue;
+    private final BulkIndexWriter bulkIndexWriter;
+    private final VectorIndexManager vectorIndexManager;
+    private final VectorSearch vectorSearch;
 
     @Value("${app.ai.rag.context-results}")
     private int ragContextResults;
@@ -27,29 +48,143 @@ public class RagService {
     @Value("${app.ai.rag.similarity-threshold}")
     private double similiarityThreshold;
 
+    @Value("${app.ai.rag.ef-search}")
+    private int efSearch;
+
+    @Value("${app.ai.snapshot.bootstrap:}")
+    private String bootstrapSnapshot;
+
+    @LogExecutionTime
     public void buildDb() {
         try {
+            importBootstrapSnapshot();
+            if (indexQueue.isEnabled()) {
+                buildDbDistributed();
+                return;
+            }
             fileScannerService.scanProjects();
-            indexedFilesStore.getAllModifiedFiles().forEach(ragBuilder::describeFile);
+            var modifiedFiles = indexedFilesStore.getAllModifiedFiles();
+            vectorIndexManager.deferForBuild(modifiedFiles.size());
+            try {
+                ollamaScheduler.withPriority(OllamaPriority.INDEXING, () -> describeFiles(modifiedFiles, fileId -> {
+                }));
+            } finally {
+                vectorIndexManager.ensureIndex();
+            }
+            codeSearchIndex.backfill();
+            vectorIndexManager.rebuildIfFragmented();
         } catch (Exception e) {
             log.warn("Error refreshing RAG DB", e);
         }
     }
 
+    public void exportSnapshot(Path file) throws IOException {
+        indexSnapshotService.exportSnapshot(file);
+    }
+
+    public void importSnapshot(Path file) throws IOException {
+        indexSnapshotService.importSnapshot(file);
+        buildDb();
+    }
+
+    private void importBootstrapSnapshot() throws IOException {
+        if (!StringUtils.hasText(bootstrapSnapshot)) {
+            return;
+        }
+        var file = Path.of(bootstrapSnapshot);
+        if (Files.isRegularFile(file) && indexSnapshotService.importIfEmpty(file)) {
+            log.info("Index was empty, imported snapshot {}", file);
+        }
+    }
+
+    private void buildDbDistributed() {
+        var leader = indexQueue.scanIfLeader(fileScannerService::scanProjects);
+        if (!leader) {
+            indexQueue.awaitLeader();
+        }
+        ollamaScheduler.withPriority(OllamaPriority.INDEXING, () -> {
+            for (var claimed = indexQueue.claim(); !claimed.isEmpty(); claimed = indexQueue.claim()) {
+                var remaining = new LinkedHashSet<>(claimed);
+                describeFiles(claimed, fileId -> {
+                    indexQueue.complete(fileId);
+                    remaining.remove(fileId);
+                    indexQueue.renew(remaining);
+                });
+                indexQueue.release(remaining);
+            }
+        });
+        if (leader) {
+            codeSearchIndex.backfill();
+            vectorIndexManager.ensureIndex();
+            vectorIndexManager.rebuildIfFragmented();
+        }
+    }
+
+    /**
+     * @param onDescribed called for every file that was described and stored, failed files stay modified
+     */
+    private void describeFiles(List<UUID> fileIds, Consumer<UUID> onDescribed) {
+        if (!bulkIndexWriter.isEnabled()) {
+            for (var batch : metadataBatcher.plan(fileIds)) {
+                metadataBatcher.describe(batch).forEach(file -> {
+                    var fileId = file.indexedFile().getId();
+                    try {
+                        ragBuilder.describeFile(file.indexedFile(), file.content(), file.metadata());
+                        onDescribed.accept(fileId);
+                    } catch (RuntimeException e) {
+                        log.error("Error describing file with id: {}", fileId, e);
+                    }
+                });
+            }
+            return;
+        }
+        try (var buffer = bulkIndexWriter.buffer(onDescribed)) {
+            for (var batch : metadataBatcher.plan(fileIds)) {
+                metadataBatcher.describe(batch).forEach(file -> {
+                    var fileId = file.indexedFile().getId();
+                    try {
+                        ragBuilder.stageFile(file.indexedFile(), file.content(), file.metadata())
+                                .ifPresentOrElse(buffer::add, () -> onDescribed.accept(fileId));
+                    } catch (RuntimeException e) {
+                        log.error("Error describing file with id: {}", fileId, e);
+                    }
+                });
+            }
+        }
+    }
+
     public String getInitialContextForQuestion(String question) {
-        var ragQuestion = ragDataTransformer.transformQuestion(question);
-        var docs = vectorStore.similaritySearch(SearchRequest.builder()
+        var ragQuestion = chatTurnMetrics.time(ChatTurnMetrics.Stage.REWRITE, () -> rewriteQuestion(question));
+        return toContext(retrieve(ragQuestion, getRetrievalSettings(), false));
+    }
+
+    public String rewriteQuestion(String question) {
+        return ollamaScheduler.withPriority(OllamaPriority.REWRITE, () -> ragDataTransformer.transformQuestion(question));
+    }
+
+    public RetrievalSettings getRetrievalSettings() {
+        return new RetrievalSettings("current", ragContextResults, similiarityThreshold, efSearch);
+    }
+
+    /**
+     * @param exact skip the ANN index and compare against every stored vector
+     */
+    public List<Document> retrieve(String ragQuestion, RetrievalSettings settings, boolean exact) {
+        var request = SearchRequest.builder()
                 .query(ragQuestion)
-                .topK(ragContextResults)
-                .similarityThreshold(similiarityThreshold)
-                .build());
+                .topK(settings.topK())
+                .similarityThreshold(settings.similarityThreshold())
+                .build();
+        return exact ? vectorSearch.searchExact(request) : vectorSearch.search(request, settings.efSearch());
+    }
+
+    static String toContext(List<Document> docs) {
         if (docs.isEmpty()) {
             return "";
         }
         return docs.stream()
                 .map(Document::getFormattedContent)
                 .collect(Collectors.joining("\n---"));
-
     }
 
 }
@@ -0,0 +1,9 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+public record RetrievalSettings(
+        String name,
+        int topK,
+        double similarityThreshold,
+        int efSearch
+) {
+}
@@ -0,0 +1,10 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import java.util.UUID;
+
+public record SourceFile(
+        UUID id,
+        String filename,
+        String content
+) {
+}
@@ -0,0 +1,9 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.UUID;
+
+public record StagedFile(UUID indexedFileId, String contentHash, List<Document> documents) {
+}
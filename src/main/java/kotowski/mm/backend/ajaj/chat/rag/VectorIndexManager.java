@@ -0,0 +1,59 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorIndexStore;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
+import kotowski.mm.backend.ajaj.infrastructure.config.VectorIndexProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the HNSW index out of the way of large builds: it is dropped before many files are written and built once
+ * afterwards, and rebuilt in the background when deletes have fragmented the graph.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+class VectorIndexManager {
+    private final VectorIndexStore vectorIndexStore;
+    private final VectorIndexProperties properties;
+    private final StageTimer stageTimer;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    void deferForBuild(int pendingFiles) {
+        if (pendingFiles < properties.getDeferMinFiles() || rebuilding.get() || !vectorIndexStore.exists()) {
+            return;
+        }
+        log.info("Dropping vector index for a build of {} files", pendingFiles);
+        vectorIndexStore.drop();
+    }
+
+    void ensureIndex() {
+        if (vectorIndexStore.exists()) {
+            return;
+        }
+        log.info("Building vector index (m={}, ef_construction={}, workers={})",
+                properties.getM(), properties.getEfConstruction(), properties.getMaintenanceWorkers());
+        stageTimer.run(RagBuilder.INDEXING, "vector-index", VectorIndexStore.INDEX_NAME, vectorIndexStore::create);
+    }
+
+    void rebuildIfFragmented() {
+        var deleteRatio = vectorIndexStore.deleteRatio();
+        if (deleteRatio < properties.getReindexDeleteRatio() || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("Vector index delete ratio is {}, rebuilding it in the background", "%.2f".formatted(deleteRatio));
+        Thread.ofVirtual().name("vector-index-rebuild").start(() -> {
+            try {
+                stageTimer.run(RagBuilder.INDEXING, "vector-reindex", VectorIndexStore.INDEX_NAME, vectorIndexStore::rebuildConcurrently);
+                log.info("Vector index rebuilt");
+            } catch (Exception e) {
+                log.warn("Error rebuilding vector index", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import jakarta.annotation.PreDestroy;
+import kotowski.mm.backend.ajaj.chat.rag.metadata.LocalMetadataExtractor;
+import kotowski.mm.backend.ajaj.chat.rag.store.FreshDocuments;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaPriority;
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-indexes a file written by a tool right away instead of waiting for the next build. Its chunks carry the locally
+ * extracted metadata and are embedded and served from memory at once, while the full re-index with the model
+ * description runs in the background ahead of regular indexing.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WriteThroughIndexer {
+    private final ProjectsProperties projectsProperties;
+    private final IndexedFilesStore indexedFilesStore;
+    private final FreshDocuments freshDocuments;
+    private final RagBuilder ragBuilder;
+    private final LocalMetadataExtractor localMetadataExtractor;
+    private final OllamaScheduler ollamaScheduler;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("write-through").factory());
+
+    @Value("${app.ai.write-through.enabled}")
+    private boolean enabled;
+
+    public void fileWritten(Path path) {
+        if (!enabled) {
+            return;
+        }
+        var file = path.toAbsolutePath().normalize();
+        for (var project : projectsProperties.getProjects()) {
+            for (var app : project.getApps()) {
+                var rootPath = Path.of(app.getPath()).normalize().toAbsolutePath();
+                if (file.startsWith(rootPath) && FileScannerService.isWatched(app, rootPath, rootPath.relativize(file))) {
+                    reindex(project.getId(), app.getId(), rootPath, file);
+                    return;
+                }
+            }
+        }
+        log.debug("Written file is not indexed: {}", file);
+    }
+
+    private void reindex(String projectId, String appId, Path rootPath, Path file) {
+        try {
+            var relative = rootPath.relativize(file).toString();
+            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            var modifiedAt = LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault());
+            var indexedFileId = indexedFilesStore.storeAndFindId(projectId, appId, relative, modifiedAt, attributes.size());
+            var filepath = indexedFilesStore.getPath(projectId, appId, relative).toString();
+            var metadata = new HashMap<String, Object>(Map.of(
+                    "filepath", filepath,
+                    "projectId", projectId,
+                    "appId", appId,
+                    "contains", "source code"
+            ));
+            var content = Files.readString(file);
+            var localMetadata = localMetadataExtractor.extract(filepath, content);
+            if (localMetadataExtractor.isTrivial(filepath, content)) {
+                localMetadata.put(LocalMetadataExtractor.RESPONSIBILITY, localMetadataExtractor.describeTrivial(filepath, content));
+            }
+            RagBuilder.mergeMetadata(metadata, localMetadata);
+            var freshFile = freshDocuments.put(filepath, RagBuilder.split(new Document(content, metadata)));
+            executor.execute(() -> {
+                try {
+                    store(indexedFileId);
+                } finally {
+                    freshDocuments.remove(freshFile);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Error re-indexing written file {}", file, e);
+        }
+    }
+
+    private void store(UUID indexedFileId) {
+        try {
+            ollamaScheduler.withPriority(OllamaPriority.WRITE_THROUGH,
+                    () -> ragBuilder.describeFile(indexedFileId, Map.of()));
+        } catch (Exception e) {
+            log.warn("Error storing re-indexed file with id: {}", indexedFileId, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,12 @@
+package kotowski.mm.backend.ajaj.chat.rag.eval;
+
+import java.util.List;
+
+/**
+ * @param expected paths of the files that should be retrieved, relative to the app root
+ */
+public record EvalQuestion(
+        String question,
+        List<String> expected
+) {
+}
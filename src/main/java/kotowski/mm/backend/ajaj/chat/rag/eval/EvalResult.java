@@ -0,0 +1,28 @@
+package kotowski.mm.backend.ajaj.chat.rag.eval;
+
+import java.time.Instant;
+
+/**
+ * @param annOverlap share of the exact search results also returned by the ANN search, only set for ANN rows
+ */
+public record EvalResult(
+        Instant runAt,
+        String configuration,
+        String search,
+        int topK,
+        double similarityThreshold,
+        int efSearch,
+        int questions,
+        double recallAtK,
+        double mrr,
+        Double annOverlap,
+        double p50Ms,
+        double p99Ms
+) {
+    @Override
+    public String toString() {
+        return "%-12s %-5s k=%-3d threshold=%.2f ef=%-4d recall@k=%.3f mrr=%.3f overlap=%s p50=%.1fms p99=%.1fms".formatted(
+                configuration, search, topK, similarityThreshold, efSearch, recallAtK, mrr,
+                annOverlap == null ? "-" : "%.3f".formatted(annOverlap), p50Ms, p99Ms);
+    }
+}
@@ -0,0 +1,141 @@
+package kotowski.mm.backend.ajaj.chat.rag.eval;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.RagService;
+import kotowski.mm.backend.ajaj.chat.rag.RetrievalSettings;
+import kotowski.mm.backend.ajaj.infrastructure.config.RetrievalEvalProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Runs a set of questions with expected files through the retrieval path of {@link RagService}, once with an exact
+ * scan and once through the ANN index for every configuration, and appends recall@k, MRR and latency percentiles to
+ * a JSON lines file so runs can be compared over time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetrievalEvaluator {
+    private static final String FILEPATH = "filepath";
+
+    private final RagService ragService;
+    private final RetrievalEvalProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public List<EvalResult> evaluate(Path questionsFile, Path resultsFile) throws IOException {
+        var questions = readQuestions(questionsFile);
+        var rewritten = questions.stream()
+                .map(question -> ragService.rewriteQuestion(question.question()))
+                .toList();
+        var runAt = Instant.now();
+        var results = new ArrayList<EvalResult>();
+        for (var settings : configurations()) {
+            var exact = run(questions, rewritten, settings, true);
+            var ann = run(questions, rewritten, settings, false);
+            results.add(exact.toResult(runAt, settings, "exact", null));
+            results.add(ann.toResult(runAt, settings, "ann", overlap(exact.files(), ann.files())));
+        }
+        var lines = new ArrayList<String>();
+        for (var result : results) {
+            lines.add(objectMapper.writeValueAsString(result));
+        }
+        var resultsPath = resultsFile != null ? resultsFile : Path.of(properties.getResults());
+        Files.write(resultsPath, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("Retrieval evaluation of {} questions written to {}", questions.size(), resultsPath);
+        return results;
+    }
+
+    private List<RetrievalSettings> configurations() {
+        var configurations = new ArrayList<RetrievalSettings>();
+        configurations.add(ragService.getRetrievalSettings());
+        properties.getConfigurations().forEach(configuration -> configurations.add(new RetrievalSettings(
+                configuration.getName(), configuration.getTopK(), configuration.getSimilarityThreshold(), configuration.getEfSearch())));
+        return configurations;
+    }
+
+    private List<EvalQuestion> readQuestions(Path questionsFile) throws IOException {
+        var questions = new ArrayList<EvalQuestion>();
+        for (var line : Files.readAllLines(questionsFile)) {
+            if (StringUtils.hasText(line)) {
+                questions.add(objectMapper.readValue(line, EvalQuestion.class));
+            }
+        }
+        return questions;
+    }
+
+    private Run run(List<EvalQuestion> questions, List<String> rewritten, RetrievalSettings settings, boolean exact) {
+        var latencies = new long[questions.size()];
+        var files = new ArrayList<List<String>>();
+        var recall = 0.0;
+        var reciprocalRank = 0.0;
+        for (var i = 0; i < questions.size(); i++) {
+            var start = System.nanoTime();
+            var documents = ragService.retrieve(rewritten.get(i), settings, exact);
+            latencies[i] = System.nanoTime() - start;
+            var retrieved = files(documents);
+            files.add(retrieved);
+            var expected = questions.get(i).expected();
+            recall += expected.isEmpty() ? 1 : (double) expected.stream()
+                    .filter(path -> retrieved.stream().anyMatch(file -> matches(file, path)))
+                    .count() / expected.size();
+            for (var rank = 0; rank < retrieved.size(); rank++) {
+                var file = retrieved.get(rank);
+                if (expected.stream().anyMatch(path -> matches(file, path))) {
+                    reciprocalRank += 1.0 / (rank + 1);
+                    break;
+                }
+            }
+        }
+        var count = Math.max(questions.size(), 1);
+        Arrays.sort(latencies);
+        return new Run(files, recall / count, reciprocalRank / count, percentile(latencies, 0.5), percentile(latencies, 0.99));
+    }
+
+    private static List<String> files(List<Document> documents) {
+        var files = new LinkedHashSet<String>();
+        documents.forEach(document -> files.add(String.valueOf(document.getMetadata().get(FILEPATH))));
+        return List.copyOf(files);
+    }
+
+    private static boolean matches(String file, String expected) {
+        return Path.of(file).normalize().endsWith(Path.of(expected).normalize());
+    }
+
+    private static Double overlap(List<List<String>> exact, List<List<String>> ann) {
+        var total = 0;
+        var found = 0;
+        for (var i = 0; i < exact.size(); i++) {
+            total += exact.get(i).size();
+            found += (int) exact.get(i).stream().filter(ann.get(i)::contains).count();
+        }
+        return total == 0 ? 1.0 : (double) found / total;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        var index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private record Run(List<List<String>> files, double recall, double mrr, double p50Ms, double p99Ms) {
+        EvalResult toResult(Instant runAt, RetrievalSettings settings, String search, Double annOverlap) {
+            return new EvalResult(runAt, settings.name(), search, settings.topK(), settings.similarityThreshold(),
+                    settings.efSearch(), files.size(), recall, mrr, annOverlap, p50Ms, p99Ms);
+        }
+    }
+}
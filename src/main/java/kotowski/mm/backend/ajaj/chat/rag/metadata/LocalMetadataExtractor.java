@@ -0,0 +1,242 @@
+package kotowski.mm.backend.ajaj.chat.rag.metadata;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbol;
+import kotowski.mm.backend.ajaj.chat.rag.symbols.SymbolExtractor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the metadata fields that follow directly from the file (language, package, dependencies, annotations,
+ * entities and, where obvious, type) without a model call. Trivial files get a generated responsibility too.
+ */
+@Component
+@RequiredArgsConstructor
+public class LocalMetadataExtractor {
+    public static final String LANGUAGE = "language";
+    public static final String PACKAGE = "package";
+    public static final String DEPENDENCIES = "dependencies";
+    public static final String ANNOTATIONS = "annotations";
+    public static final String ENTITIES = "entities";
+    public static final String TYPE = "type";
+    public static final String RESPONSIBILITY = "responsibility";
+
+    private static final int MAX_LIST_ITEMS = 30;
+    private static final Map<String, String> LANGUAGES = Map.ofEntries(
+            Map.entry("java", "java"), Map.entry("kt", "kotlin"), Map.entry("kts", "kotlin"),
+            Map.entry("scala", "scala"), Map.entry("groovy", "groovy"), Map.entry("gradle", "groovy"),
+            Map.entry("cs", "csharp"), Map.entry("dart", "dart"), Map.entry("swift", "swift"),
+            Map.entry("ts", "typescript"), Map.entry("tsx", "typescript"), Map.entry("js", "javascript"),
+            Map.entry("jsx", "javascript"), Map.entry("mjs", "javascript"), Map.entry("php", "php"),
+            Map.entry("c", "c"), Map.entry("h", "c"), Map.entry("cpp", "cpp"), Map.entry("hpp", "cpp"),
+            Map.entry("cc", "cpp"), Map.entry("py", "python"), Map.entry("go", "go"), Map.entry("rs", "rust"),
+            Map.entry("yaml", "yaml"), Map.entry("yml", "yaml"), Map.entry("properties", "properties"),
+            Map.entry("json", "json"), Map.entry("toml", "toml"), Map.entry("xml", "xml"), Map.entry("sql", "sql"),
+            Map.entry("md", "markdown"), Map.entry("html", "html"), Map.entry("css", "css"), Map.entry("scss", "scss"),
+            Map.entry("sh", "shell"));
+    private static final Set<String> CONFIG_LANGUAGES = Set.of("yaml", "properties", "json", "toml", "xml");
+    private static final Map<String, String> TYPE_BY_ANNOTATION = Map.ofEntries(
+            Map.entry("RestController", "controller"), Map.entry("Controller", "controller"),
+            Map.entry("Service", "service"), Map.entry("Repository", "repository"),
+            Map.entry("Configuration", "config"), Map.entry("ConfigurationProperties", "config"),
+            Map.entry("Entity", "model"), Map.entry("Table", "model"), Map.entry("Test", "test"),
+            Map.entry("SpringBootTest", "test"), Map.entry("Component", "component"),
+            Map.entry("Injectable", "service"), Map.entry("NgModule", "module"));
+
+    private static final Pattern JVM_PACKAGE = Pattern.compile("(?m)^\\s*package\\s+([\\w.]+)");
+    private static final Pattern GO_PACKAGE = Pattern.compile("(?m)^package\\s+(\\w+)");
+    private static final Pattern CS_NAMESPACE = Pattern.compile("(?m)^\\s*namespace\\s+([\\w.]+)");
+    private static final Pattern JVM_IMPORT = Pattern.compile("(?m)^\\s*import\\s+(?:static\\s+)?([\\w.*]+)");
+    private static final Pattern PYTHON_IMPORT = Pattern.compile("(?m)^\\s*(?:from\\s+([\\w.]+)\\s+import|import\\s+([\\w.]+))");
+    private static final Pattern QUOTED_IMPORT = Pattern.compile(
+            "(?m)(?:^\\s*import\\s+(?:[^'\"]*\\s+from\\s+)?|\\brequire\\s*\\(\\s*|^\\s*export\\s+[^'\"]*\\s+from\\s+)['\"]([^'\"]+)['\"]");
+    private static final Pattern GO_IMPORT = Pattern.compile("(?m)^\\s*(?:import\\s+)?(?:\\w+\\s+)?\"([\\w./\\-]+)\"\\s*$");
+    private static final Pattern RUST_USE = Pattern.compile("(?m)^\\s*(?:pub\\s+)?use\\s+([\\w:]+)");
+    private static final Pattern CS_USING = Pattern.compile("(?m)^\\s*using\\s+([\\w.]+)\\s*;");
+    private static final Pattern ANNOTATION = Pattern.compile("(?m)^\\s*@([A-Za-z_][\\w.]*)");
+    private static final Pattern MIGRATION_NAME = Pattern.compile("(?i)(^|/)(V\\d+[\\w.]*__[^/]+|\\d{8,}[^/]*)\\.sql$");
+    private static final Pattern ALTER_TABLE = Pattern.compile("(?i)\\balter\\s+table\\s+(?:if\\s+exists\\s+)?(?:only\\s+)?([\\w.\"]+)");
+
+    private final SymbolExtractor symbolExtractor;
+
+    @Value("${app.ai.local-metadata.trivial-max-lines}")
+    private int trivialMaxLines;
+
+    public Map<String, String> extract(String fileName, String content) {
+        var metadata = new HashMap<String, String>();
+        var language = language(fileName);
+        if (language == null) {
+            return metadata;
+        }
+        metadata.put(LANGUAGE, language);
+        putIfPresent(metadata, PACKAGE, packageName(language, content));
+        putIfPresent(metadata, DEPENDENCIES, join(dependencies(language, content)));
+        var annotations = annotations(language, content);
+        putIfPresent(metadata, ANNOTATIONS, join(annotations));
+        putIfPresent(metadata, ENTITIES, join(entities(symbolExtractor.extract(fileName, content))));
+        putIfPresent(metadata, TYPE, type(fileName, language, annotations, content));
+        return metadata;
+    }
+
+    public boolean isTrivial(String fileName, String content) {
+        var language = language(fileName);
+        var lines = content.lines().filter(line -> !line.isBlank()).count();
+        if (lines <= 3) {
+            return true;
+        }
+        if ("sql".equals(language)) {
+            return isMigration(fileName) || lines <= trivialMaxLines;
+        }
+        return isConfig(language) && lines <= trivialMaxLines;
+    }
+
+    public String describeTrivial(String fileName, String content) {
+        var name = fileName.substring(fileName.replace('\\', '/').lastIndexOf('/') + 1);
+        var language = language(fileName);
+        var symbols = symbolExtractor.extract(fileName, content);
+        if ("sql".equals(language)) {
+            var tables = new LinkedHashSet<String>();
+            symbols.stream()
+                    .filter(symbol -> SymbolExtractor.SQL_TABLE.equals(symbol.kind()))
+                    .forEach(symbol -> tables.add(symbol.name()));
+            var alter = ALTER_TABLE.matcher(content);
+            while (alter.find()) {
+                var table = alter.group(1).replace("\"", "");
+                tables.add(table.substring(table.lastIndexOf('.') + 1));
+            }
+            var prefix = isMigration(fileName) ? "Database migration " + name : "SQL script " + name;
+            return tables.isEmpty() ? prefix : prefix + " for tables: " + join(tables);
+        }
+        if (isConfig(language)) {
+            var sections = new LinkedHashSet<String>();
+            symbols.stream()
+                    .filter(symbol -> SymbolExtractor.CONFIG_KEY.equals(symbol.kind()))
+                    .map(symbol -> symbol.name().split("\\.")[0])
+                    .forEach(sections::add);
+            return sections.isEmpty()
+                    ? "Configuration file " + name
+                    : "Configuration file " + name + " with sections: " + join(sections);
+        }
+        return (language == null ? "File " : language + " file ") + name;
+    }
+
+    public static String language(String fileName) {
+        var dot = fileName.lastIndexOf('.');
+        return dot < 0 ? null : LANGUAGES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String packageName(String language, String content) {
+        var pattern = switch (language) {
+            case "java", "kotlin", "scala", "groovy" -> JVM_PACKAGE;
+            case "go" -> GO_PACKAGE;
+            case "csharp" -> CS_NAMESPACE;
+            default -> null;
+        };
+        if (pattern == null) {
+            return null;
+        }
+        var matcher = pattern.matcher(content);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static Set<String> dependencies(String language, String content) {
+        var dependencies = new LinkedHashSet<String>();
+        switch (language) {
+            case "java", "kotlin", "scala", "groovy" -> collect(JVM_IMPORT, content, dependencies);
+            case "python" -> {
+                var matcher = PYTHON_IMPORT.matcher(content);
+                while (matcher.find()) {
+                    dependencies.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+                }
+            }
+            case "typescript", "javascript", "dart" -> collect(QUOTED_IMPORT, content, dependencies);
+            case "go" -> collect(GO_IMPORT, content, dependencies);
+            case "rust" -> collect(RUST_USE, content, dependencies);
+            case "csharp" -> collect(CS_USING, content, dependencies);
+            default -> {
+            }
+        }
+        return dependencies;
+    }
+
+    private static Set<String> annotations(String language, String content) {
+        var annotations = new LinkedHashSet<String>();
+        if (Set.of("java", "kotlin", "scala", "groovy", "typescript", "javascript", "dart", "python").contains(language)) {
+            var matcher = ANNOTATION.matcher(content);
+            while (matcher.find()) {
+                var annotation = matcher.group(1);
+                annotations.add(annotation.substring(annotation.lastIndexOf('.') + 1));
+            }
+        }
+        return annotations;
+    }
+
+    private static Set<String> entities(List<CodeSymbol> symbols) {
+        return symbols.stream()
+                .filter(symbol -> SymbolExtractor.SQL_TABLE.equals(symbol.kind())
+                        || (symbol.container() == null && !SymbolExtractor.CONFIG_KEY.equals(symbol.kind())))
+                .map(CodeSymbol::name)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private String type(String fileName, String language, Set<String> annotations, String content) {
+        var normalized = fileName.replace('\\', '/');
+        if ("sql".equals(language)) {
+            return isMigration(normalized) ? "migration" : "sql";
+        }
+        if (isConfig(language)) {
+            return "config";
+        }
+        if ("markdown".equals(language)) {
+            return "documentation";
+        }
+        if (normalized.contains("/test/") || normalized.matches(".*(Test|Tests|_test|\\.test|\\.spec)\\.\\w+$")) {
+            return "test";
+        }
+        if ("dart".equals(language) && (content.contains("extends StatelessWidget") || content.contains("extends StatefulWidget"))) {
+            return "widget";
+        }
+        return annotations.stream()
+                .map(TYPE_BY_ANNOTATION::get)
+                .filter(type -> type != null)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isConfig(String language) {
+        return language != null && CONFIG_LANGUAGES.contains(language);
+    }
+
+    private static boolean isMigration(String fileName) {
+        var normalized = fileName.replace('\\', '/');
+        return MIGRATION_NAME.matcher(normalized).find() || normalized.contains("/migration");
+    }
+
+    private static void collect(Pattern pattern, String content, Set<String> target) {
+        var matcher = pattern.matcher(content);
+        while (matcher.find()) {
+            target.add(matcher.group(1));
+        }
+    }
+
+    private static String join(Set<String> values) {
+        return values.stream()
+                .limit(MAX_LIST_ITEMS)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void putIfPresent(Map<String, String> metadata, String key, String value) {
+        if (value != null && !value.isBlank()) {
+            metadata.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package kotowski.mm.backend.ajaj.chat.rag.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Length-prefixed frames, so several COPY streams can follow each other in one snapshot file. A frame of length 0
+ * ends a section.
+ */
+final class FramedStreams {
+
+    private FramedStreams() {
+    }
+
+    static OutputStream section(DataOutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (length > 0) {
+                    out.writeInt(length);
+                    out.write(bytes, offset, length);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.writeInt(0);
+            }
+        };
+    }
+
+    static InputStream section(DataInputStream in) {
+        return new InputStream() {
+            private int remaining;
+            private boolean finished;
+
+            @Override
+            public int read() throws IOException {
+                var single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (finished) {
+                    return -1;
+                }
+                if (remaining == 0) {
+                    remaining = in.readInt();
+                    if (remaining == 0) {
+                        finished = true;
+                        return -1;
+                    }
+                }
+                var read = in.read(bytes, offset, Math.min(length, remaining));
+                if (read < 0) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+                remaining -= read;
+                return read;
+            }
+        };
+    }
+}
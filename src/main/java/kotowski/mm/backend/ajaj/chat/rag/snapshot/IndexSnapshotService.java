@@ -0,0 +1,217 @@
+package kotowski.mm.backend.ajaj.chat.rag.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexTaskStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.bench.LogExecutionTime;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the whole index (vector store, file bookkeeping, search lines and symbols) into one gzipped file of
+ * binary COPY streams, and imports it back. Files are matched by content hash afterwards, so after an import only
+ * the files that really differ get re-embedded.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IndexSnapshotService {
+    private static final byte[] MAGIC = "AJAJIDX".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 3;
+    /**
+     * The exported tables: {@code indexed_file}, {@code indexed_file_line}, {@code code_symbol} and
+     * {@code vector_store}. Chunks are linked to their file by {@code vector_store.indexed_file_id}.
+     */
+    private static final List<SnapshotTable> TABLES = List.of(
+            new SnapshotTable("public.indexed_file", "id, project_id, app_id, path, modified_at, modified_at_stored, size_bytes, content_hash, symbols_version"),
+            new SnapshotTable("public.indexed_file_line", "indexed_file_id, line_number, content"),
+            new SnapshotTable("public.code_symbol", "id, indexed_file_id, kind, name, container, line_number, chunk_number, document_id"),
+            new SnapshotTable("public.vector_store", "id, indexed_file_id, content, metadata, embedding"));
+    /**
+     * State of this machine that refers to the replaced rows, truncated together with them. Without the recorded
+     * commits of {@code app_index_state} the next scan is a full walk that rechecks every file by hash.
+     */
+    private static final List<String> LOCAL_TABLES = List.of("public.index_task", "public.app_index_state",
+            "public.vector_index_state");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProjectsProperties projectsProperties;
+    private final IndexedFilesStore indexedFilesStore;
+    private final IndexTaskStore indexTaskStore;
+
+    @Value("${spring.ai.ollama.embedding.options.model}")
+    private String embeddingModel;
+
+    @LogExecutionTime
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportSnapshot(Path file) throws IOException {
+        var manifest = new SnapshotManifest(VERSION, embeddingModel, dimensions(), Instant.now(), appRoots(),
+                TABLES.stream().map(SnapshotTable::name).toList());
+        try (var out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.write(MAGIC);
+            var manifestJson = objectMapper.writeValueAsBytes(manifest);
+            out.writeInt(manifestJson.length);
+            out.write(manifestJson);
+            for (var table : TABLES) {
+                try (var section = FramedStreams.section(out)) {
+                    var rows = copyOut("COPY %s (%s) TO STDOUT (FORMAT binary)".formatted(table.name(), table.columns()), section);
+                    log.info("Exported {} rows from {}", rows, table.name());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the index with the snapshot. Holds the indexing leader lock, so no instance scans while it runs.
+     */
+    @LogExecutionTime
+    @Transactional
+    public void importSnapshot(Path file) throws IOException {
+        indexTaskStore.lockLeader();
+        load(file);
+    }
+
+    /**
+     * Imports the snapshot only into an empty index. The check and the import run under the indexing leader lock, so
+     * instances starting together import it once and the others scan only after it is committed.
+     *
+     * @return whether the snapshot was imported
+     */
+    @LogExecutionTime
+    @Transactional
+    public boolean importIfEmpty(Path file) throws IOException {
+        indexTaskStore.lockLeader();
+        if (!isIndexEmpty()) {
+            return false;
+        }
+        load(file);
+        return true;
+    }
+
+    private void load(Path file) throws IOException {
+        try (var in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16))) {
+            var magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not an index snapshot: " + file);
+            }
+            var manifest = objectMapper.readValue(in.readNBytes(in.readInt()), SnapshotManifest.class);
+            validate(manifest);
+            jdbcTemplate.getJdbcTemplate().execute("TRUNCATE " + String.join(", ", LOCAL_TABLES) + ", "
+                    + String.join(", ", manifest.tables()));
+            for (var table : TABLES) {
+                var rows = copyIn("COPY %s (%s) FROM STDIN (FORMAT binary)".formatted(table.name(), table.columns()),
+                        FramedStreams.section(in));
+                log.info("Imported {} rows into {}", rows, table.name());
+            }
+            relocate(manifest.appRoots());
+        }
+    }
+
+    private boolean isIndexEmpty() {
+        return indexedFilesStore.count() == 0;
+    }
+
+    private void validate(SnapshotManifest manifest) {
+        if (manifest.version() != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + manifest.version());
+        }
+        if (!Objects.equals(manifest.embeddingModel(), embeddingModel) || manifest.dimensions() != dimensions()) {
+            throw new IllegalArgumentException("Snapshot was built with embedding model %s (%d dimensions), current model is %s (%d dimensions)"
+                    .formatted(manifest.embeddingModel(), manifest.dimensions(), embeddingModel, dimensions()));
+        }
+        if (!manifest.tables().equals(TABLES.stream().map(SnapshotTable::name).toList())) {
+            throw new IllegalArgumentException("Snapshot tables do not match: " + manifest.tables());
+        }
+    }
+
+    private void relocate(Map<String, String> snapshotRoots) {
+        var localRoots = appRoots();
+        snapshotRoots.forEach((app, snapshotRoot) -> {
+            var localRoot = localRoots.get(app);
+            if (localRoot == null || localRoot.equals(snapshotRoot)) {
+                return;
+            }
+            var ids = app.split("/", 2);
+            var updated = jdbcTemplate.update("""
+                    UPDATE public.vector_store
+                    SET metadata = jsonb_set(metadata::jsonb, '{filepath}',
+                            to_jsonb(:localRoot || substr(metadata ->> 'filepath', length(:snapshotRoot) + 1)))::json
+                    WHERE metadata ->> 'projectId' = :projectId
+                      AND metadata ->> 'appId' = :appId
+                      AND starts_with(metadata ->> 'filepath', :snapshotRoot)""", new MapSqlParameterSource()
+                    .addValue("localRoot", localRoot)
+                    .addValue("snapshotRoot", snapshotRoot)
+                    .addValue("projectId", ids[0])
+                    .addValue("appId", ids[1]));
+            log.info("Relocated {} documents of {} from {} to {}", updated, app, snapshotRoot, localRoot);
+        });
+    }
+
+    private Map<String, String> appRoots() {
+        var roots = new HashMap<String, String>();
+        for (var project : projectsProperties.getProjects()) {
+            for (var app : project.getApps()) {
+                roots.put(project.getId() + "/" + app.getId(), Path.of(app.getPath()).normalize().toAbsolutePath().toString());
+            }
+        }
+        return roots;
+    }
+
+    private int dimensions() {
+        return jdbcTemplate.getJdbcTemplate().queryForObject("""
+                SELECT atttypmod
+                FROM pg_attribute
+                WHERE attrelid = 'public.vector_store'::regclass
+                  AND attname = 'embedding'""", Integer.class);
+    }
+
+    private long copyOut(String sql, OutputStream out) {
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private long copyIn(String sql, InputStream in) {
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, in);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private record SnapshotTable(String name, String columns) {
+    }
+}
@@ -0,0 +1,15 @@
+package kotowski.mm.backend.ajaj.chat.rag.snapshot;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record SnapshotManifest(
+        int version,
+        String embeddingModel,
+        int dimensions,
+        Instant createdAt,
+        Map<String, String> appRoots,
+        List<String> tables
+) {
+}
@@ -0,0 +1,9 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import java.util.List;
+
+public record AppIndexState(
+        String lastCommit,
+        List<String> dirtyPaths
+) {
+}
@@ -0,0 +1,47 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class AppIndexStateStore {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Optional<AppIndexState> find(String projectId, String appId) {
+        return jdbcTemplate.query("""
+                        SELECT last_commit, dirty_paths
+                        FROM public.app_index_state
+                        WHERE project_id = :projectId
+                          AND app_id = :appId""",
+                new MapSqlParameterSource()
+                        .addValue("projectId", projectId)
+                        .addValue("appId", appId),
+                (rs, rowNum) -> new AppIndexState(
+                        rs.getString("last_commit"),
+                        List.of((String[]) rs.getArray("dirty_paths").getArray())))
+                .stream()
+                .findFirst();
+    }
+
+    public void save(String projectId, String appId, String lastCommit, Collection<String> dirtyPaths) {
+        jdbcTemplate.update("""
+                INSERT INTO public.app_index_state (project_id, app_id, last_commit, dirty_paths, updated_at)
+                VALUES (:projectId, :appId, :lastCommit, string_to_array(:dirtyPaths, chr(10)), now())
+                ON CONFLICT (project_id, app_id)
+                DO UPDATE SET
+                    last_commit = EXCLUDED.last_commit,
+                    dirty_paths = EXCLUDED.dirty_paths,
+                    updated_at = EXCLUDED.updated_at""", new MapSqlParameterSource()
+                .addValue("projectId", projectId)
+                .addValue("appId", appId)
+                .addValue("lastCommit", lastCommit)
+                .addValue("dirtyPaths", String.join("\n", dirtyPaths)));
+    }
+}
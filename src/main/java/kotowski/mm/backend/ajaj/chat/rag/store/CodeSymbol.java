@@ -0,0 +1,14 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+public record CodeSymbol(
+        String kind,
+        String name,
+        String container,
+        int lineNumber,
+        Integer chunkNumber,
+        String documentId) {
+
+    public CodeSymbol withChunk(Integer chunkNumber, String documentId) {
+        return new CodeSymbol(kind, name, container, lineNumber, chunkNumber, documentId);
+    }
+}
@@ -0,0 +1,12 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+public record CodeSymbolLocation(
+        String projectId,
+        String appId,
+        String path,
+        String kind,
+        String name,
+        String container,
+        int lineNumber,
+        Integer chunkNumber) {
+}
@@ -0,0 +1,118 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+public class CodeSymbolStore {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Replaces the symbols of the file and records the extractor version that produced them, also when there are
+     * none, so the file is not extracted again until the extractor changes.
+     */
+    public void replace(UUID indexedFileId, List<CodeSymbol> symbols, int extractorVersion) {
+        jdbcTemplate.update("""
+                DELETE FROM public.code_symbol
+                WHERE indexed_file_id = :indexedFileId""", new MapSqlParameterSource("indexedFileId", indexedFileId));
+        markExtracted(indexedFileId, extractorVersion);
+        if (symbols.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO public.code_symbol (indexed_file_id, kind, name, container, line_number, chunk_number, document_id)
+                VALUES (:indexedFileId, :kind, :name, :container, :lineNumber, :chunkNumber, :documentId)""",
+                symbols.stream()
+                        .map(symbol -> new MapSqlParameterSource()
+                                .addValue("indexedFileId", indexedFileId)
+                                .addValue("kind", symbol.kind())
+                                .addValue("name", symbol.name())
+                                .addValue("container", symbol.container())
+                                .addValue("lineNumber", symbol.lineNumber())
+                                .addValue("chunkNumber", symbol.chunkNumber())
+                                .addValue("documentId", symbol.documentId()))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
+    public void markExtracted(UUID indexedFileId, int extractorVersion) {
+        jdbcTemplate.update("""
+                UPDATE public.indexed_file
+                SET symbols_version = :extractorVersion
+                WHERE id = :indexedFileId""", new MapSqlParameterSource()
+                .addValue("indexedFileId", indexedFileId)
+                .addValue("extractorVersion", extractorVersion));
+    }
+
+    /**
+     * @return files with search lines whose symbols were not extracted by the given extractor version, such as files
+     * indexed before symbols were extracted
+     */
+    public List<UUID> getFilesWithOutdatedSymbols(int extractorVersion) {
+        return jdbcTemplate.queryForList("""
+                SELECT f.id
+                FROM public.indexed_file f
+                WHERE f.modified_at IS NOT NULL
+                  AND (f.symbols_version IS NULL OR f.symbols_version < :extractorVersion)
+                  AND EXISTS (SELECT 1 FROM public.indexed_file_line l WHERE l.indexed_file_id = f.id)""",
+                new MapSqlParameterSource("extractorVersion", extractorVersion), UUID.class);
+    }
+
+    /**
+     * @param filepath the {@code filepath} metadata of the chunks, the absolute path of the file
+     * @return the stored chunks of the file in chunk order, with their ids and text only
+     */
+    public List<Document> getChunks(String filepath) {
+        return jdbcTemplate.query("""
+                SELECT id, content
+                FROM public.vector_store
+                WHERE metadata ->> 'filepath' = :filepath
+                ORDER BY CAST(metadata ->> 'chunkNumber' AS integer)""",
+                new MapSqlParameterSource("filepath", filepath),
+                (rs, rowNum) -> Document.builder()
+                        .id(rs.getString("id"))
+                        .text(rs.getString("content"))
+                        .build());
+    }
+
+    public List<CodeSymbolLocation> find(String name, boolean prefix, String kind, String appId, int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("name", escapeLike(name.toLowerCase()) + (prefix ? "%" : ""))
+                .addValue("kind", kind)
+                .addValue("appId", appId)
+                .addValue("limit", limit);
+        return jdbcTemplate.query("""
+                SELECT f.project_id, f.app_id, f.path, s.kind, s.name, s.container, s.line_number, s.chunk_number
+                FROM public.code_symbol s
+                         JOIN public.indexed_file f ON f.id = s.indexed_file_id
+                WHERE lower(s.name) LIKE :name
+                  AND (CAST(:kind AS text) IS NULL OR s.kind = :kind)
+                  AND (CAST(:appId AS text) IS NULL OR f.app_id = :appId)
+                  AND f.modified_at IS NOT NULL
+                ORDER BY length(s.name), s.kind, f.path, s.line_number
+                LIMIT :limit""",
+                params,
+                (rs, rowNum) -> new CodeSymbolLocation(
+                        rs.getString("project_id"),
+                        rs.getString("app_id"),
+                        rs.getString("path"),
+                        rs.getString("kind"),
+                        rs.getString("name"),
+                        rs.getString("container"),
+                        rs.getInt("line_number"),
+                        rs.getObject("chunk_number", Integer.class)));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
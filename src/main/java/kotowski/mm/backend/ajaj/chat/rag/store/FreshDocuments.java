@@ -0,0 +1,86 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Chunks of files written moments ago, kept in memory until their re-index is stored. Searches drop the stored
+ * chunks of these files and rank the fresh ones against the query instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class FreshDocuments {
+    private static final String FILEPATH = "filepath";
+
+    private final EmbeddingModel embeddingModel;
+    private final Map<String, FreshFile> files = new ConcurrentHashMap<>();
+
+    public FreshFile put(String filepath, List<Document> documents) {
+        var embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                new TokenCountBatchingStrategy());
+        var file = new FreshFile(filepath, documents, embeddings);
+        files.put(filepath, file);
+        return file;
+    }
+
+    /**
+     * Removes the file unless it has been written again in the meantime.
+     */
+    public void remove(FreshFile file) {
+        files.remove(file.filepath(), file);
+    }
+
+    /**
+     * @param query        the embedded query
+     * @param storedSearch searches the stored chunks for the given number of results
+     */
+    List<Document> search(SearchRequest request, float[] query, IntFunction<List<Document>> storedSearch) {
+        var fresh = Map.copyOf(files);
+        if (fresh.isEmpty()) {
+            return storedSearch.apply(request.getTopK());
+        }
+        var freshChunks = fresh.values().stream().mapToInt(file -> file.documents().size()).sum();
+        var stored = storedSearch.apply(request.getTopK() + freshChunks);
+        var merged = new ArrayList<Document>();
+        stored.stream()
+                .filter(document -> !fresh.containsKey(String.valueOf(document.getMetadata().get(FILEPATH))))
+                .forEach(merged::add);
+        for (var file : fresh.values()) {
+            for (var i = 0; i < file.documents().size(); i++) {
+                var score = cosineSimilarity(query, file.embeddings().get(i));
+                if (score >= request.getSimilarityThreshold()) {
+                    merged.add(file.documents().get(i).mutate().score(score).build());
+                }
+            }
+        }
+        merged.sort(Comparator.comparing(Document::getScore, Comparator.nullsLast(Comparator.reverseOrder())));
+        return merged.subList(0, Math.min(request.getTopK(), merged.size()));
+    }
+
+    private static double cosineSimilarity(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (var i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    public record FreshFile(String filepath, List<Document> documents, List<float[]> embeddings) {
+    }
+}
@@ -0,0 +1,124 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+public class IndexTaskStore {
+    private static final long LEADER_LOCK_KEY = 0x616a616a_696e6478L;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public boolean tryLeaderLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(:key)",
+                new MapSqlParameterSource("key", LEADER_LOCK_KEY), Boolean.class));
+    }
+
+    /**
+     * Waits for the leader lock and holds it until the transaction ends.
+     */
+    public void lockLeader() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(:key)",
+                new MapSqlParameterSource("key", LEADER_LOCK_KEY), rs -> {
+                });
+    }
+
+    public void awaitLeader() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(:key)",
+                new MapSqlParameterSource("key", LEADER_LOCK_KEY), rs -> {
+                });
+    }
+
+    /**
+     * Queues modified files. Tasks that used up their attempts in an earlier scan get them back.
+     */
+    public int enqueueModified(int maxAttempts) {
+        return jdbcTemplate.update("""
+                INSERT INTO public.index_task (indexed_file_id)
+                SELECT f.id
+                FROM public.indexed_file f
+                WHERE f.is_modified
+                ON CONFLICT (indexed_file_id) DO UPDATE
+                    SET claimed_by  = NULL,
+                        lease_until = NULL,
+                        attempts    = 0
+                    WHERE index_task.attempts >= :maxAttempts""", new MapSqlParameterSource("maxAttempts", maxAttempts));
+    }
+
+    public List<UUID> getExhausted(int maxAttempts) {
+        return jdbcTemplate.queryForList("""
+                SELECT indexed_file_id
+                FROM public.index_task
+                WHERE attempts >= :maxAttempts
+                  AND (lease_until IS NULL OR lease_until < now())""", new MapSqlParameterSource("maxAttempts", maxAttempts), UUID.class);
+    }
+
+    public List<UUID> claim(String workerId, Duration lease, int limit, int maxAttempts) {
+        return jdbcTemplate.queryForList("""
+                UPDATE public.index_task t
+                SET claimed_by  = :workerId,
+                    lease_until = now() + make_interval(secs => :leaseSeconds),
+                    attempts    = t.attempts + 1
+                WHERE t.indexed_file_id IN (SELECT c.indexed_file_id
+                                            FROM public.index_task c
+                                            WHERE (c.lease_until IS NULL OR c.lease_until < now())
+                                              AND c.attempts < :maxAttempts
+                                            ORDER BY c.lease_until NULLS FIRST, c.created_at
+                                            LIMIT :limit
+                                            FOR UPDATE SKIP LOCKED)
+                RETURNING t.indexed_file_id""", new MapSqlParameterSource()
+                .addValue("workerId", workerId)
+                .addValue("leaseSeconds", lease.toSeconds())
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("limit", limit), UUID.class);
+    }
+
+    public void renew(Collection<UUID> indexedFileIds, String workerId, Duration lease) {
+        if (indexedFileIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("""
+                UPDATE public.index_task
+                SET lease_until = now() + make_interval(secs => :leaseSeconds)
+                WHERE indexed_file_id IN (:indexedFileIds)
+                  AND claimed_by = :workerId""", new MapSqlParameterSource()
+                .addValue("indexedFileIds", indexedFileIds)
+                .addValue("workerId", workerId)
+                .addValue("leaseSeconds", lease.toSeconds()));
+    }
+
+    public void release(Collection<UUID> indexedFileIds, String workerId) {
+        if (indexedFileIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("""
+                UPDATE public.index_task
+                SET claimed_by  = NULL,
+                    lease_until = NULL
+                WHERE indexed_file_id IN (:indexedFileIds)
+                  AND claimed_by = :workerId""", new MapSqlParameterSource()
+                .addValue("indexedFileIds", indexedFileIds)
+                .addValue("workerId", workerId));
+    }
+
+    public void complete(UUID indexedFileId, String workerId) {
+        jdbcTemplate.update("""
+                DELETE FROM public.index_task
+                WHERE indexed_file_id = :indexedFileId
+                  AND claimed_by = :workerId""", new MapSqlParameterSource()
+                .addValue("indexedFileId", indexedFileId)
+                .addValue("workerId", workerId));
+    }
+
+    public long pending() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM public.index_task", new MapSqlParameterSource(), Long.class);
+    }
+}
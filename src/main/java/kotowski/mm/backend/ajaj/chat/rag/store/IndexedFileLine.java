@@ -0,0 +1,13 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+public interface IndexedFileLine {
+    String getProjectId();
+
+    String getAppId();
+
+    String getPath();
+
+    Integer getLineNumber();
+
+    String getContent();
+}
@@ -6,19 +6,22 @@ import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 interface IndexedFileRepository extends JpaRepository<IndexedFile, UUID> {
 
     @Modifying
     @NativeQuery("""
-            INSERT INTO public.indexed_file (project_id, app_id, path, modified_at)
-            VALUES (:projectId, :appId, :path, :modifiedAt)
+            INSERT INTO public.indexed_file (project_id, app_id, path, modified_at, size_bytes)
+            VALUES (:projectId, :appId, :path, :modifiedAt, :sizeBytes)
             ON CONFLICT (project_id, app_id, path)
             DO UPDATE SET
-                modified_at = EXCLUDED.modified_at;""")
-    void upsert(String projectId, String appId, String path, LocalDateTime modifiedAt);
+                modified_at = EXCLUDED.modified_at,
+                size_bytes = EXCLUDED.size_bytes;""")
+    void upsert(String projectId, String appId, String path, LocalDateTime modifiedAt, long sizeBytes);
 
     @Modifying
     @NativeQuery("""
@@ -34,6 +37,148 @@ interface IndexedFileRepository extends JpaRepository<IndexedFile, UUID> {
             SET modified_at = NULL;""")
     void invalidateAll();
 
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET modified_at = NULL
+            WHERE project_id = :projectId
+              AND app_id = :appId;""")
+    void invalidateApp(String projectId, String appId);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET modified_at = NULL
+            WHERE (project_id || '/' || app_id) NOT IN (:appKeys);""")
+    void invalidateOtherApps(Collection<String> appKeys);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET modified_at = NULL
+            WHERE project_id = :projectId
+              AND app_id = :appId
+              AND path = :path;""")
+    void markDeleted(String projectId, String appId, String path);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET modified_at_stored = NULL
+            WHERE project_id = :projectId
+              AND app_id = :appId
+              AND path = :path;""")
+    void markChanged(String projectId, String appId, String path);
+
+    @NativeQuery("""
+            SELECT f.id
+            FROM public.indexed_file f
+            WHERE f.project_id = :projectId
+              AND f.app_id = :appId
+              AND f.path = :path;""")
+    Optional<UUID> findId(String projectId, String appId, String path);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET path = :path
+            WHERE id = :indexedFileId;""")
+    void move(UUID indexedFileId, String path);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.vector_store vs
+            SET metadata = CAST(jsonb_set(CAST(vs.metadata AS jsonb), '{filepath}', to_jsonb(CAST(:filepath AS text))) AS json)
+            WHERE vs.indexed_file_id = :indexedFileId;""")
+    void relocateDocuments(UUID indexedFileId, String filepath);
+
+    @Modifying
+    @NativeQuery("""
+            DELETE FROM public.vector_store
+            WHERE indexed_file_id = :indexedFileId;""")
+    void deleteDocuments(UUID indexedFileId);
+
+    @Modifying
+    @NativeQuery("""
+            UPDATE public.indexed_file
+            SET modified_at_stored = modified_at,
+                content_hash       = :contentHash
+            WHERE id = :indexedFileId;""")
+    void markStored(UUID indexedFileId, String contentHash);
+
+    @Modifying
+    @NativeQuery("""
+            DELETE FROM public.indexed_file
+            WHERE id = :indexedFileId;""")
+    void deleteFile(UUID indexedFileId);
+
     @Query("select f.id from IndexedFile f where f.isModified")
     List<UUID> getAllModified();
+
+    @NativeQuery("""
+            SELECT f.project_id AS projectId,
+                   f.app_id     AS appId,
+                   f.path       AS path,
+                   f.size_bytes AS sizeBytes,
+                   (SELECT vs.metadata ->> 'responsibility'
+                    FROM public.vector_store vs
+                    WHERE vs.indexed_file_id = f.id
+                    LIMIT 1)    AS responsibility
+            FROM public.indexed_file f
+            WHERE f.modified_at IS NOT NULL
+              AND (CAST(:appId AS text) IS NULL OR f.app_id = :appId)
+            ORDER BY f.project_id, f.app_id, f.path;""")
+    List<IndexedFileSummary> getSummaries(String appId);
+
+    @Modifying
+    @NativeQuery("""
+            DELETE FROM public.indexed_file_line
+            WHERE indexed_file_id = :indexedFileId;""")
+    void deleteLines(UUID indexedFileId);
+
+    @Modifying
+    @NativeQuery("""
+            INSERT INTO public.indexed_file_line (indexed_file_id, line_number, content)
+            SELECT :indexedFileId, t.line_number, rtrim(t.content, chr(13))
+            FROM regexp_split_to_table(:content, chr(10)) WITH ORDINALITY AS t(content, line_number);""")
+    void insertLines(UUID indexedFileId, String content);
+
+    @NativeQuery("""
+            SELECT f.id
+            FROM public.indexed_file f
+            WHERE f.modified_at IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM public.indexed_file_line l WHERE l.indexed_file_id = f.id);""")
+    List<UUID> getAllWithoutLines();
+
+    @NativeQuery("""
+            SELECT f.project_id  AS projectId,
+                   f.app_id      AS appId,
+                   f.path        AS path,
+                   l.line_number AS lineNumber,
+                   l.content     AS content
+            FROM public.indexed_file_line l
+                     JOIN public.indexed_file f ON f.id = l.indexed_file_id
+            WHERE f.modified_at IS NOT NULL
+              AND l.content ~ :pattern
+              AND (CAST(:appId AS text) IS NULL OR f.app_id = :appId)
+              AND (CAST(:pathPattern AS text) IS NULL OR f.path ~* :pathPattern)
+            ORDER BY f.project_id, f.app_id, f.path, l.line_number
+            LIMIT :limit OFFSET :offset""")
+    List<IndexedFileLine> searchLines(String pattern, String appId, String pathPattern, int limit, int offset);
+
+    @NativeQuery("""
+            SELECT f.project_id  AS projectId,
+                   f.app_id      AS appId,
+                   f.path        AS path,
+                   l.line_number AS lineNumber,
+                   l.content     AS content
+            FROM public.indexed_file_line l
+                     JOIN public.indexed_file f ON f.id = l.indexed_file_id
+            WHERE f.modified_at IS NOT NULL
+              AND l.content ~* :pattern
+              AND (CAST(:appId AS text) IS NULL OR f.app_id = :appId)
+              AND (CAST(:pathPattern AS text) IS NULL OR f.path ~* :pathPattern)
+            ORDER BY f.project_id, f.app_id, f.path, l.line_number
+            LIMIT :limit OFFSET :offset""")
+    List<IndexedFileLine> searchLinesIgnoreCase(String pattern, String appId, String pathPattern, int limit, int offset);
 }
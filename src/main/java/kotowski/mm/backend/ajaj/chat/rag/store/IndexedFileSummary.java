@@ -0,0 +1,13 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+public interface IndexedFileSummary {
+    String getProjectId();
+
+    String getAppId();
+
+    String getPath();
+
+    Long getSizeBytes();
+
+    String getResponsibility();
+}
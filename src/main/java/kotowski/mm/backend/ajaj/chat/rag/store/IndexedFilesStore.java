@@ -4,9 +4,11 @@ import jakarta.persistence.Index;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,29 +20,88 @@ public class IndexedFilesStore {
     public void invalidateAll() {
         repository.invalidateAll();
     }
-    public void store(String projectId, String appId, String filePath, LocalDateTime modifiedAt) {
-        repository.upsert(projectId, appId, filePath, modifiedAt);
+    public void store(String projectId, String appId, String filePath, LocalDateTime modifiedAt, long sizeBytes) {
+        repository.upsert(projectId, appId, filePath, modifiedAt, sizeBytes);
     }
-    public void delete(IndexedFile indexedFile) {
-        repository.delete(indexedFile);
+    @Transactional
+    public UUID storeAndFindId(String projectId, String appId, String filePath, LocalDateTime modifiedAt, long sizeBytes) {
+        repository.upsert(projectId, appId, filePath, modifiedAt, sizeBytes);
+        return repository.findId(projectId, appId, filePath).orElseThrow();
+    }
+    public void invalidateApp(String projectId, String appId) {
+        repository.invalidateApp(projectId, appId);
+    }
+    public void invalidateOtherApps(Collection<String> appKeys) {
+        repository.invalidateOtherApps(appKeys);
+    }
+    public void markDeleted(String projectId, String appId, String path) {
+        repository.markDeleted(projectId, appId, path);
+    }
+    public void markChanged(String projectId, String appId, String path) {
+        repository.markChanged(projectId, appId, path);
+    }
+    public boolean move(String projectId, String appId, String oldPath, String newPath) {
+        var indexedFileId = repository.findId(projectId, appId, oldPath);
+        if (indexedFileId.isEmpty() || repository.findId(projectId, appId, newPath).isPresent()) {
+            return false;
+        }
+        repository.move(indexedFileId.get(), newPath);
+        repository.relocateDocuments(indexedFileId.get(), getPath(projectId, appId, newPath).toString());
+        return true;
+    }
+    /**
+     * Deletes the file together with its documents, search lines and symbols, which cascade in the database.
+     */
+    public void delete(UUID indexedFileId) {
+        repository.deleteFile(indexedFileId);
+    }
+    public void deleteDocuments(UUID indexedFileId) {
+        repository.deleteDocuments(indexedFileId);
+    }
+    public void markStored(UUID indexedFileId, String contentHash) {
+        repository.markStored(indexedFileId, contentHash);
     }
     public List<UUID> getAllModifiedFiles() {
         return repository.getAllModified();
     }
     public Path getPath(IndexedFile indexedFile) {
+        return getPath(indexedFile.getProjectId(), indexedFile.getAppId(), indexedFile.getPath());
+    }
+    public Path getPath(String projectId, String appId, String path) {
         var rootPath = properties.getProjects().stream()
-                .filter(project -> project.getId().equals(indexedFile.getProjectId()))
+                .filter(project -> project.getId().equals(projectId))
                 .flatMap(project -> project.getApps().stream())
-                .filter(app -> app.getId().equals(indexedFile.getAppId()))
+                .filter(app -> app.getId().equals(appId))
                 .map(ProjectsProperties.ProjectApp::getPath)
                 .findFirst()
                 .orElseThrow();
-        return Path.of(rootPath, indexedFile.getPath()).normalize().toAbsolutePath();
+        return Path.of(rootPath, path).normalize().toAbsolutePath();
+    }
+    public long count() {
+        return repository.count();
     }
     public IndexedFile findById(UUID indexedFileId) {
         return repository.findById(indexedFileId).orElseThrow();
     }
+    public List<IndexedFile> findAllById(Collection<UUID> indexedFileIds) {
+        return repository.findAllById(indexedFileIds);
+    }
     public void store(IndexedFile indexedFile) {
         repository.save(indexedFile);
     }
+    public List<IndexedFileSummary> getSummaries(String appId) {
+        return repository.getSummaries(appId);
+    }
+    public void storeLines(UUID indexedFileId, String content) {
+        repository.deleteLines(indexedFileId);
+        repository.insertLines(indexedFileId, content);
+    }
+    public List<UUID> getAllWithoutLines() {
+        return repository.getAllWithoutLines();
+    }
+    public List<IndexedFileLine> searchLines(String pattern, boolean ignoreCase, String appId, String pathPattern, int limit, int offset) {
+        return ignoreCase
+                ? repository.searchLinesIgnoreCase(pattern, appId, pathPattern, limit, offset)
+                : repository.searchLines(pattern, appId, pathPattern, limit, offset);
+    }
 }
@@ -0,0 +1,110 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import kotowski.mm.backend.ajaj.infrastructure.config.VectorIndexProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * DDL and statistics of the HNSW index on {@code vector_store.embedding}. Index builds run on one connection, so the
+ * session settings for parallel maintenance workers apply to them.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorIndexStore {
+    public static final String INDEX_NAME = "vector_store_embedding_idx";
+    private static final String REBUILT_INDEX_NAME = INDEX_NAME + "_rebuilt";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final VectorIndexProperties properties;
+
+    public boolean exists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(:name) IS NOT NULL",
+                new MapSqlParameterSource("name", "public." + INDEX_NAME), Boolean.class));
+    }
+
+    public void drop() {
+        jdbcTemplate.getJdbcTemplate().execute("DROP INDEX IF EXISTS public." + INDEX_NAME);
+    }
+
+    public void create() {
+        build(INDEX_NAME, false);
+        markBuilt();
+    }
+
+    /**
+     * Builds a new index next to the current one without blocking writes and swaps them, so changed {@code m} and
+     * {@code ef_construction} settings are applied as well.
+     */
+    public void rebuildConcurrently() {
+        jdbcTemplate.getJdbcTemplate().execute("DROP INDEX IF EXISTS public." + REBUILT_INDEX_NAME);
+        build(REBUILT_INDEX_NAME, true);
+        swap();
+        markBuilt();
+    }
+
+    /**
+     * @return rows deleted from {@code vector_store} since the index was last built, relative to the live rows
+     */
+    public double deleteRatio() {
+        return jdbcTemplate.queryForObject("""
+                SELECT (t.n_tup_del - coalesce(s.deletes_at_build, 0))::float8 / greatest(t.n_live_tup, 1)
+                FROM pg_stat_user_tables t
+                         LEFT JOIN public.vector_index_state s ON s.index_name = :name
+                WHERE t.relid = 'public.vector_store'::regclass""",
+                new MapSqlParameterSource("name", INDEX_NAME), Double.class);
+    }
+
+    private void build(String name, boolean concurrently) {
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (var statement = connection.createStatement()) {
+                try {
+                    statement.execute("SET maintenance_work_mem = '%s'".formatted(properties.getMaintenanceWorkMem().replace("'", "")));
+                    statement.execute("SET max_parallel_maintenance_workers = " + properties.getMaintenanceWorkers());
+                    statement.execute("""
+                            CREATE INDEX %s %s ON public.vector_store
+                                USING hnsw (embedding vector_cosine_ops)
+                                WITH (m = %d, ef_construction = %d)""".formatted(
+                            concurrently ? "CONCURRENTLY" : "", name, properties.getM(), properties.getEfConstruction()));
+                } finally {
+                    statement.execute("RESET max_parallel_maintenance_workers");
+                    statement.execute("RESET maintenance_work_mem");
+                }
+            }
+            return null;
+        });
+    }
+
+    private void swap() {
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            connection.setAutoCommit(false);
+            try (var statement = connection.createStatement()) {
+                statement.execute("DROP INDEX IF EXISTS public." + INDEX_NAME);
+                statement.execute("ALTER INDEX public.%s RENAME TO %s".formatted(REBUILT_INDEX_NAME, INDEX_NAME));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return null;
+        });
+    }
+
+    private void markBuilt() {
+        jdbcTemplate.update("""
+                INSERT INTO public.vector_index_state (index_name, deletes_at_build)
+                SELECT :name, t.n_tup_del
+                FROM pg_stat_user_tables t
+                WHERE t.relid = 'public.vector_store'::regclass
+                ON CONFLICT (index_name) DO UPDATE SET deletes_at_build = EXCLUDED.deletes_at_build,
+                                                       built_at         = now()""",
+                new MapSqlParameterSource("name", INDEX_NAME));
+    }
+}
@@ -0,0 +1,107 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.observation.conventions.VectorStoreProvider;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.observation.DefaultVectorStoreObservationConvention;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationDocumentation;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Similarity search with {@code hnsw.ef_search} set for the query only, or an exact search with index scans turned
+ * off. The settings are transaction local, so pooled connections keep their defaults. The query is embedded before
+ * the transaction starts, so no connection is held while it waits for Ollama. Chunks of files written since their
+ * last index are served from {@link FreshDocuments}. Filter expressions are not supported.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorSearch {
+    private static final int MAX_EF_SEARCH = 1000;
+    private static final DefaultVectorStoreObservationConvention OBSERVATION_CONVENTION = new DefaultVectorStoreObservationConvention();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final FreshDocuments freshDocuments;
+    private final ObservationRegistry observationRegistry;
+    private final ObjectMapper objectMapper;
+
+    public List<Document> search(SearchRequest request, int efSearch) {
+        var value = Math.min(Math.max(efSearch, request.getTopK()), MAX_EF_SEARCH);
+        return search(request, "SELECT set_config('hnsw.ef_search', :value, true)",
+                new MapSqlParameterSource("value", String.valueOf(value)));
+    }
+
+    public List<Document> searchExact(SearchRequest request) {
+        return search(request, "SELECT set_config('enable_indexscan', 'off', true)", new MapSqlParameterSource());
+    }
+
+    private List<Document> search(SearchRequest request, String setting, MapSqlParameterSource settingParameters) {
+        if (request.hasFilterExpression()) {
+            throw new IllegalArgumentException("Filter expressions are not supported: " + request.getFilterExpression());
+        }
+        var query = embeddingModel.embed(request.getQuery());
+        return freshDocuments.search(request, query, topK -> transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject(setting, settingParameters, String.class);
+            return nearest(request, query, topK);
+        }));
+    }
+
+    private List<Document> nearest(SearchRequest request, float[] query, int topK) {
+        var observationContext = VectorStoreObservationContext.builder(VectorStoreProvider.PG_VECTOR.value(),
+                        VectorStoreObservationContext.Operation.QUERY)
+                .collectionName("vector_store")
+                .queryRequest(request)
+                .build();
+        return VectorStoreObservationDocumentation.AI_VECTOR_STORE
+                .observation(null, OBSERVATION_CONVENTION, () -> observationContext, observationRegistry)
+                .observe(() -> {
+                    var documents = jdbcTemplate.query("""
+                            SELECT id, content, metadata, embedding <=> :query AS distance
+                            FROM public.vector_store
+                            WHERE embedding <=> :query < :maxDistance
+                            ORDER BY distance
+                            LIMIT :topK""", new MapSqlParameterSource()
+                            .addValue("query", new PGvector(query))
+                            .addValue("maxDistance", 1 - request.getSimilarityThreshold())
+                            .addValue("topK", topK), (rs, rowNum) -> {
+                        var distance = rs.getDouble("distance");
+                        var metadata = new HashMap<>(toMetadata(rs.getString("metadata")));
+                        metadata.put("distance", distance);
+                        return Document.builder()
+                                .id(rs.getString("id"))
+                                .text(rs.getString("content"))
+                                .metadata(metadata)
+                                .score(1 - distance)
+                                .build();
+                    });
+                    observationContext.setQueryResponse(documents);
+                    return documents;
+                });
+    }
+
+    private Map<String, Object> toMetadata(String json) {
+        try {
+            return json == null ? Map.of() : objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
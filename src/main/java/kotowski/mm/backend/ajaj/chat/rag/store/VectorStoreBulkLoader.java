@@ -0,0 +1,153 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import com.pgvector.PGvector;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Writes documents of many files at once: rows are streamed with binary COPY into temporary staging tables and merged
+ * into {@code vector_store} and {@code indexed_file} with one statement. Every row is inserted with its
+ * {@code indexed_file_id}, so it is never updated afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorStoreBulkLoader {
+    private static final byte[] COPY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public int load(Collection<BulkFile> files, Collection<BulkDocument> documents) {
+        var jdbc = jdbcTemplate.getJdbcTemplate();
+        jdbc.execute("""
+                CREATE TEMPORARY TABLE indexed_file_staging
+                (
+                    indexed_file_id uuid not null,
+                    content_hash    text not null
+                ) ON COMMIT DROP""");
+        jdbc.execute("""
+                CREATE TEMPORARY TABLE vector_store_staging
+                (
+                    indexed_file_id uuid not null,
+                    id              uuid not null,
+                    content         text,
+                    metadata        json,
+                    embedding       vector
+                ) ON COMMIT DROP""");
+        copy("COPY indexed_file_staging (indexed_file_id, content_hash) FROM STDIN (FORMAT binary)", out -> {
+            for (var file : files) {
+                out.writeShort(2);
+                writeUuid(out, file.indexedFileId());
+                writeText(out, file.contentHash());
+            }
+        });
+        copy("COPY vector_store_staging (indexed_file_id, id, content, metadata, embedding) FROM STDIN (FORMAT binary)", out -> {
+            for (var document : documents) {
+                out.writeShort(5);
+                writeUuid(out, document.indexedFileId());
+                writeUuid(out, document.id());
+                writeText(out, document.content());
+                writeText(out, document.metadata());
+                writeVector(out, document.embedding());
+            }
+        });
+        return jdbcTemplate.update("""
+                WITH old_vectors AS (
+                    DELETE FROM public.vector_store vs
+                    USING indexed_file_staging s
+                    WHERE vs.indexed_file_id = s.indexed_file_id),
+                     new_vectors AS (
+                         INSERT INTO public.vector_store (id, indexed_file_id, content, metadata, embedding)
+                         SELECT s.id, s.indexed_file_id, s.content, s.metadata, s.embedding
+                         FROM vector_store_staging s)
+                UPDATE public.indexed_file f
+                SET modified_at_stored = f.modified_at,
+                    content_hash       = s.content_hash
+                FROM indexed_file_staging s
+                WHERE f.id = s.indexed_file_id""", new MapSqlParameterSource());
+    }
+
+    /**
+     * Inserts the documents of a few files with a JDBC batch, without staging tables.
+     */
+    public void insert(Collection<BulkDocument> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO public.vector_store (id, indexed_file_id, content, metadata, embedding)
+                VALUES (:id, :indexedFileId, :content, CAST(:metadata AS json), :embedding)""", documents.stream()
+                .map(document -> new MapSqlParameterSource()
+                        .addValue("id", document.id())
+                        .addValue("indexedFileId", document.indexedFileId())
+                        .addValue("content", document.content())
+                        .addValue("metadata", document.metadata())
+                        .addValue("embedding", new PGvector(document.embedding())))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private void copy(String sql, CopyWriter writer) {
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (var out = new DataOutputStream(new BufferedOutputStream(
+                    new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql), 1 << 16))) {
+                out.write(COPY_SIGNATURE);
+                out.writeInt(0);
+                out.writeInt(0);
+                writer.write(out);
+                out.writeShort(-1);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVector(DataOutputStream out, float[] vector) throws IOException {
+        out.writeInt(4 + 4 * vector.length);
+        out.writeShort(vector.length);
+        out.writeShort(0);
+        for (var value : vector) {
+            out.writeFloat(value);
+        }
+    }
+
+    private interface CopyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    public record BulkFile(UUID indexedFileId, String contentHash) {
+    }
+
+    public record BulkDocument(UUID indexedFileId, UUID id, String content, String metadata, float[] embedding) {
+    }
+}
@@ -0,0 +1,219 @@
+package kotowski.mm.backend.ajaj.chat.rag.symbols;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbol;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+@Component
+public class SymbolExtractor {
+    /**
+     * Stored with the symbols of each file. Increase it when extraction changes, so indexed files are extracted again.
+     */
+    public static final int VERSION = 1;
+    public static final String CONFIG_KEY = "config_key";
+    public static final String SQL_TABLE = "sql_table";
+    public static final String METHOD = "method";
+    public static final String FUNCTION = "function";
+
+    private static final Set<String> C_LIKE = Set.of("java", "kt", "kts", "scala", "groovy", "cs", "dart", "swift",
+            "ts", "tsx", "js", "jsx", "mjs", "php", "c", "h", "cpp", "hpp", "cc");
+    private static final Set<String> OTHER = Set.of("py", "go", "rs", "yaml", "yml", "properties", "sql");
+    private static final Set<String> KEYWORDS = Set.of("if", "for", "foreach", "while", "switch", "catch", "return",
+            "new", "else", "throw", "synchronized", "super", "this", "try", "do", "case", "await", "yield", "assert");
+
+    private static final Pattern TYPE = Pattern.compile(
+            "\\b(class|interface|enum|record|object|trait|struct|mixin|extension)\\s+([A-Za-z_$][\\w$]*)");
+    private static final Pattern C_LIKE_METHOD = Pattern.compile(
+            "^\\s*(?:[\\w$<>\\[\\],.?@]+\\s+)+([A-Za-z_$][\\w$]*)\\s*(?:<[^>]*>)?\\s*\\(");
+    private static final Pattern KEYWORD_FUNCTION = Pattern.compile(
+            "\\b(?:fun|func|function|def|fn)\\s+(?:<[^>]*>\\s*)?(?:[\\w$]+\\.)?([A-Za-z_$][\\w$]*)\\s*[(<]");
+    private static final Pattern ARROW_FUNCTION = Pattern.compile(
+            "^\\s*(?:export\\s+)?(?:const|let|var)\\s+([A-Za-z_$][\\w$]*)\\s*=\\s*(?:async\\s*)?(?:\\([^)]*\\)|[\\w$]+)\\s*=>");
+    private static final Pattern SHORT_METHOD = Pattern.compile(
+            "^\\s*(?:async\\s+|static\\s+|get\\s+|set\\s+)*([A-Za-z_$][\\w$]*)\\s*\\([^)]*\\)\\s*(?::\\s*[^{]+)?\\{\\s*$");
+    private static final Pattern GO_FUNCTION = Pattern.compile("^func\\s+(\\([^)]*\\)\\s*)?([A-Za-z_]\\w*)");
+    private static final Pattern GO_TYPE = Pattern.compile("^type\\s+([A-Za-z_]\\w*)\\s+(struct|interface)");
+    private static final Pattern PYTHON_CLASS = Pattern.compile("^\\s*class\\s+([A-Za-z_]\\w*)");
+    private static final Pattern PYTHON_DEF = Pattern.compile("^(\\s*)(?:async\\s+)?def\\s+([A-Za-z_]\\w*)");
+    private static final Pattern YAML_KEY = Pattern.compile("^(\\s*)(-\\s+)?([\\w.\\-\\[\\]\"']+)\\s*:(?:\\s|$)");
+    private static final Pattern PROPERTIES_KEY = Pattern.compile("^\\s*([\\w.\\-\\[\\]]+)\\s*[=:]");
+    private static final Pattern SQL_TABLE_PATTERN = Pattern.compile(
+            "(?i)\\bcreate\\s+(?:or\\s+replace\\s+)?(?:unlogged\\s+|temp(?:orary)?\\s+)?(?:table|view|materialized\\s+view)\\s+(?:if\\s+not\\s+exists\\s+)?([\\w.\"]+)");
+
+    public boolean supports(String fileName) {
+        var extension = extension(fileName);
+        return C_LIKE.contains(extension) || OTHER.contains(extension);
+    }
+
+    public List<CodeSymbol> extract(String fileName, String content) {
+        var extension = extension(fileName);
+        var lines = content.split("\n", -1);
+        if (C_LIKE.contains(extension)) {
+            return extractCLike(lines);
+        }
+        return switch (extension) {
+            case "py" -> extractPython(lines);
+            case "go" -> extractGo(lines);
+            case "rs" -> extractCLike(lines);
+            case "yaml", "yml" -> extractYaml(lines);
+            case "properties" -> extractProperties(lines);
+            case "sql" -> extractSql(lines);
+            default -> List.of();
+        };
+    }
+
+    private static List<CodeSymbol> extractCLike(String[] lines) {
+        var symbols = new ArrayList<CodeSymbol>();
+        String container = null;
+        for (var i = 0; i < lines.length; i++) {
+            var line = lines[i];
+            var trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("*") || trimmed.startsWith("/*")
+                    || trimmed.startsWith("import ") || trimmed.startsWith("package ")) {
+                continue;
+            }
+            var type = TYPE.matcher(line);
+            if (type.find() && !trimmed.startsWith("return") && !trimmed.contains("new ")) {
+                symbols.add(new CodeSymbol(type.group(1), type.group(2), container, i + 1, null, null));
+                container = type.group(2);
+                continue;
+            }
+            var name = functionName(line, trimmed);
+            if (name != null) {
+                symbols.add(new CodeSymbol(container == null ? FUNCTION : METHOD, name, container, i + 1, null, null));
+            }
+        }
+        return symbols;
+    }
+
+    private static String functionName(String line, String trimmed) {
+        var keywordFunction = KEYWORD_FUNCTION.matcher(line);
+        if (keywordFunction.find()) {
+            return keywordFunction.group(1);
+        }
+        var arrowFunction = ARROW_FUNCTION.matcher(line);
+        if (arrowFunction.find()) {
+            return arrowFunction.group(1);
+        }
+        if (trimmed.endsWith(";") || trimmed.startsWith("@")) {
+            return null;
+        }
+        var beforeParenthesis = trimmed.indexOf('(') < 0 ? trimmed : trimmed.substring(0, trimmed.indexOf('('));
+        if (beforeParenthesis.contains("=") || beforeParenthesis.contains(".")) {
+            return null;
+        }
+        var firstWord = beforeParenthesis.split("\\s+")[0];
+        if (KEYWORDS.contains(firstWord)) {
+            return null;
+        }
+        var method = C_LIKE_METHOD.matcher(line);
+        if (method.find() && !KEYWORDS.contains(method.group(1))) {
+            return method.group(1);
+        }
+        var shortMethod = SHORT_METHOD.matcher(line);
+        if (shortMethod.find() && !KEYWORDS.contains(shortMethod.group(1))) {
+            return shortMethod.group(1);
+        }
+        return null;
+    }
+
+    private static List<CodeSymbol> extractPython(String[] lines) {
+        var symbols = new ArrayList<CodeSymbol>();
+        String container = null;
+        for (var i = 0; i < lines.length; i++) {
+            var type = PYTHON_CLASS.matcher(lines[i]);
+            if (type.find()) {
+                container = type.group(1);
+                symbols.add(new CodeSymbol("class", container, null, i + 1, null, null));
+                continue;
+            }
+            var def = PYTHON_DEF.matcher(lines[i]);
+            if (def.find()) {
+                var nested = !def.group(1).isEmpty() && container != null;
+                symbols.add(new CodeSymbol(nested ? METHOD : FUNCTION, def.group(2), nested ? container : null, i + 1, null, null));
+                if (!nested) {
+                    container = null;
+                }
+            }
+        }
+        return symbols;
+    }
+
+    private static List<CodeSymbol> extractGo(String[] lines) {
+        var symbols = new ArrayList<CodeSymbol>();
+        for (var i = 0; i < lines.length; i++) {
+            var type = GO_TYPE.matcher(lines[i]);
+            if (type.find()) {
+                symbols.add(new CodeSymbol(type.group(2), type.group(1), null, i + 1, null, null));
+                continue;
+            }
+            var function = GO_FUNCTION.matcher(lines[i]);
+            if (function.find()) {
+                symbols.add(new CodeSymbol(function.group(1) == null ? FUNCTION : METHOD, function.group(2), null, i + 1, null, null));
+            }
+        }
+        return symbols;
+    }
+
+    private static List<CodeSymbol> extractYaml(String[] lines) {
+        record Key(int indent, String name) {
+        }
+        var symbols = new ArrayList<CodeSymbol>();
+        var path = new ArrayDeque<Key>();
+        for (var i = 0; i < lines.length; i++) {
+            var line = lines[i];
+            if (line.isBlank() || line.strip().startsWith("#") || line.startsWith("---")) {
+                continue;
+            }
+            var key = YAML_KEY.matcher(line);
+            if (!key.find()) {
+                continue;
+            }
+            var indent = key.group(1).length() + (key.group(2) == null ? 0 : key.group(2).length());
+            while (!path.isEmpty() && path.peekLast().indent() >= indent) {
+                path.removeLast();
+            }
+            var parent = path.stream().map(Key::name).reduce((a, b) -> a + "." + b).orElse(null);
+            var name = key.group(3).replaceAll("[\"']", "");
+            symbols.add(new CodeSymbol(CONFIG_KEY, parent == null ? name : parent + "." + name, parent, i + 1, null, null));
+            path.addLast(new Key(indent, name));
+        }
+        return symbols;
+    }
+
+    private static List<CodeSymbol> extractProperties(String[] lines) {
+        var symbols = new ArrayList<CodeSymbol>();
+        for (var i = 0; i < lines.length; i++) {
+            var key = PROPERTIES_KEY.matcher(lines[i]);
+            if (!lines[i].strip().startsWith("#") && key.find()) {
+                symbols.add(new CodeSymbol(CONFIG_KEY, key.group(1), null, i + 1, null, null));
+            }
+        }
+        return symbols;
+    }
+
+    private static List<CodeSymbol> extractSql(String[] lines) {
+        var symbols = new ArrayList<CodeSymbol>();
+        for (var i = 0; i < lines.length; i++) {
+            var table = SQL_TABLE_PATTERN.matcher(lines[i]);
+            if (table.find()) {
+                var name = table.group(1).replace("\"", "");
+                var schemaSeparator = name.lastIndexOf('.');
+                symbols.add(new CodeSymbol(SQL_TABLE, name.substring(schemaSeparator + 1),
+                        schemaSeparator < 0 ? null : name.substring(0, schemaSeparator), i + 1, null, null));
+            }
+        }
+        return symbols;
+    }
+
+    private static String extension(String fileName) {
+        var dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,10 +1,16 @@
 package kotowski.mm.backend.ajaj.chat.tools;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
+import kotowski.mm.backend.ajaj.infrastructure.config.ToolExecutionProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.support.ToolCallbacks;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -36,4 +42,18 @@ class AiToolConfiguration {
             return message;
         };
     }
+
+    @Bean
+    ToolCallingManager toolCallingManager(ObjectProvider<ObservationRegistry> observationRegistry,
+                                          ToolCallbackResolver toolCallbackResolver,
+                                          ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                                          ToolExecutionProperties properties) {
+        var registry = observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP);
+        var delegate = DefaultToolCallingManager.builder()
+                .observationRegistry(registry)
+                .toolCallbackResolver(toolCallbackResolver)
+                .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+                .build();
+        return new ParallelToolCallingManager(delegate, registry, toolCallbackResolver, toolExecutionExceptionProcessor, properties);
+    }
 }
@@ -0,0 +1,190 @@
+package kotowski.mm.backend.ajaj.chat.tools;
+
+import io.micrometer.observation.ObservationRegistry;
+import kotowski.mm.backend.ajaj.infrastructure.config.ToolExecutionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.observation.DefaultToolCallingObservationConvention;
+import org.springframework.ai.tool.observation.ToolCallingObservationContext;
+import org.springframework.ai.tool.observation.ToolCallingObservationDocumentation;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the tool calls of one model response concurrently on virtual threads. Mutating tools run alone, after all
+ * previously requested calls finished, and the responses are returned in the order the model requested them.
+ */
+@Slf4j
+class ParallelToolCallingManager implements ToolCallingManager {
+    private static final DefaultToolCallingObservationConvention OBSERVATION_CONVENTION = new DefaultToolCallingObservationConvention();
+
+    private final ToolCallingManager delegate;
+    private final ObservationRegistry observationRegistry;
+    private final ToolCallbackResolver toolCallbackResolver;
+    private final ToolExecutionExceptionProcessor toolExecutionExceptionProcessor;
+    private final ToolExecutionProperties properties;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    ParallelToolCallingManager(ToolCallingManager delegate,
+                               ObservationRegistry observationRegistry,
+                               ToolCallbackResolver toolCallbackResolver,
+                               ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                               ToolExecutionProperties properties) {
+        this.delegate = delegate;
+        this.observationRegistry = observationRegistry;
+        this.toolCallbackResolver = toolCallbackResolver;
+        this.toolExecutionExceptionProcessor = toolExecutionExceptionProcessor;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        if (!properties.isParallel()) {
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+        var assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(output -> !CollectionUtils.isEmpty(output.getToolCalls()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        var toolCalls = assistantMessage.getToolCalls();
+        var toolCallbacks = new ArrayList<ToolCallback>();
+        for (var toolCall : toolCalls) {
+            toolCallbacks.add(resolve(prompt, toolCall.name()));
+        }
+        var toolContext = buildToolContext(prompt, assistantMessage);
+        var results = new String[toolCalls.size()];
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var pending = new ArrayList<Future<?>>();
+            for (var i = 0; i < toolCalls.size(); i++) {
+                var index = i;
+                var toolCall = toolCalls.get(i);
+                var toolCallback = toolCallbacks.get(i);
+                if (properties.isMutating(toolCall.name())) {
+                    await(pending);
+                    results[index] = call(toolCallback, toolCall, toolContext);
+                } else {
+                    pending.add(executor.submit(() -> results[index] = callWithPermit(toolCallback, toolCall, toolContext)));
+                }
+            }
+            await(pending);
+        }
+        if (toolCalls.size() > 1) {
+            log.info("Executed {} tool calls concurrently", toolCalls.size());
+        }
+        var toolResponses = new ArrayList<ToolResponseMessage.ToolResponse>();
+        for (var i = 0; i < toolCalls.size(); i++) {
+            toolResponses.add(new ToolResponseMessage.ToolResponse(toolCalls.get(i).id(), toolCalls.get(i).name(), results[i]));
+        }
+        var conversationHistory = new ArrayList<Message>(prompt.copy().getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(toolResponses, Map.of()));
+        var returnDirect = toolCallbacks.stream().allMatch(toolCallback -> toolCallback.getToolMetadata().returnDirect());
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    private ToolCallback resolve(Prompt prompt, String toolName) {
+        List<ToolCallback> toolCallbacks = prompt.getOptions() instanceof ToolCallingChatOptions options
+                ? options.getToolCallbacks()
+                : List.of();
+        var toolCallback = toolCallbacks.stream()
+                .filter(tool -> toolName.equals(tool.getToolDefinition().name()))
+                .findFirst()
+                .orElseGet(() -> toolCallbackResolver.resolve(toolName));
+        if (toolCallback == null) {
+            throw new IllegalStateException("No ToolCallback found for tool name: " + toolName);
+        }
+        return toolCallback;
+    }
+
+    private String callWithPermit(ToolCallback toolCallback, AssistantMessage.ToolCall toolCall, ToolContext toolContext) throws InterruptedException {
+        var semaphore = permits.computeIfAbsent(toolCall.name(), name -> new Semaphore(properties.getConcurrency(name)));
+        semaphore.acquire();
+        try {
+            return call(toolCallback, toolCall, toolContext);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private String call(ToolCallback toolCallback, AssistantMessage.ToolCall toolCall, ToolContext toolContext) {
+        var arguments = StringUtils.hasText(toolCall.arguments()) ? toolCall.arguments() : "{}";
+        var observationContext = ToolCallingObservationContext.builder()
+                .toolDefinition(toolCallback.getToolDefinition())
+                .toolMetadata(toolCallback.getToolMetadata())
+                .toolCallArguments(arguments)
+                .build();
+        return ToolCallingObservationDocumentation.TOOL_CALL
+                .observation(null, OBSERVATION_CONVENTION, () -> observationContext, observationRegistry)
+                .observe(() -> {
+                    String result;
+                    try {
+                        result = toolCallback.call(arguments, toolContext);
+                    } catch (ToolExecutionException e) {
+                        result = toolExecutionExceptionProcessor.process(e);
+                    }
+                    observationContext.setToolCallResult(result);
+                    return result;
+                });
+    }
+
+    private static void await(List<Future<?>> pending) {
+        try {
+            for (var future : pending) {
+                future.get();
+            }
+            pending.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing tool calls", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ToolContext buildToolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options && !CollectionUtils.isEmpty(options.getToolContext())) {
+            var toolContext = new HashMap<>(options.getToolContext());
+            var history = new ArrayList<Message>(prompt.copy().getInstructions());
+            history.add(assistantMessage);
+            toolContext.put(ToolContext.TOOL_CALL_HISTORY, history);
+            return new ToolContext(toolContext);
+        }
+        return new ToolContext(Map.of());
+    }
+}
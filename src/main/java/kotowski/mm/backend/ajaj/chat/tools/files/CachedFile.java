@@ -0,0 +1,61 @@
+package kotowski.mm.backend.ajaj.chat.tools.files;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.stream.IntStream;
+
+record CachedFile(
+        Path path,
+        FileTime modifiedAt,
+        long sizeBytes,
+        String sha256,
+        String content,
+        int[] lineStarts) {
+
+    static CachedFile load(Path path, FileTime modifiedAt) throws IOException {
+        var bytes = Files.readAllBytes(path);
+        var content = new String(bytes, StandardCharsets.UTF_8);
+        var lineStarts = IntStream.concat(
+                        IntStream.of(0),
+                        IntStream.range(0, content.length() - 1)
+                                .filter(i -> content.charAt(i) == '\n')
+                                .map(i -> i + 1))
+                .toArray();
+        return new CachedFile(path, modifiedAt, bytes.length, sha256(bytes), content, lineStarts);
+    }
+
+    int lineCount() {
+        return lineStarts.length;
+    }
+
+    int lineEnd(int line) {
+        return line < lineStarts.length ? lineStarts[line] : content.length();
+    }
+
+    String slice(int fromLine, int toLine) {
+        return content.substring(lineStarts[fromLine - 1], lineEnd(toLine));
+    }
+
+    int lastLineWithin(int fromLine, int toLine, int maxChars) {
+        var start = lineStarts[fromLine - 1];
+        var line = fromLine - 1;
+        while (line < toLine && lineEnd(line + 1) - start <= maxChars) {
+            line++;
+        }
+        return line;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package kotowski.mm.backend.ajaj.chat.tools.files;
+
+public record FileContent(
+        String path,
+        int fromLine,
+        int toLine,
+        int totalLines,
+        long sizeBytes,
+        String sha256,
+        boolean truncated,
+        String content,
+        Integer fromChar,
+        Integer nextChar) {
+}
@@ -0,0 +1,64 @@
+package kotowski.mm.backend.ajaj.chat.tools.files;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently read files keyed by path. An entry is reused while the file's modification time and size are unchanged;
+ * files larger than {@code max-cached-bytes} are read on every call and never kept.
+ */
+@Component
+public class FileContentCache {
+
+    @Value("${app.ai.file-tool.cache-entries}")
+    private int cacheEntries;
+
+    @Value("${app.ai.file-tool.max-cached-bytes}")
+    private long maxCachedBytes;
+
+    private Map<Path, CachedFile> cache;
+
+    public CachedFile get(Path path) throws IOException {
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        var modifiedAt = attributes.lastModifiedTime();
+        synchronized (cache) {
+            var cached = cache.get(path);
+            if (cached != null && cached.modifiedAt().equals(modifiedAt) && cached.sizeBytes() == attributes.size()) {
+                return cached;
+            }
+        }
+        var loaded = CachedFile.load(path, modifiedAt);
+        synchronized (cache) {
+            if (loaded.sizeBytes() <= maxCachedBytes) {
+                cache.put(path, loaded);
+            } else {
+                cache.remove(path);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(Path path) {
+        synchronized (cache) {
+            cache.remove(path);
+        }
+    }
+
+    @PostConstruct
+    void createCache() {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CachedFile> eldest) {
+                return size() > cacheEntries;
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package kotowski.mm.backend.ajaj.chat.tools.files;
 
 import jakarta.annotation.PostConstruct;
+import kotowski.mm.backend.ajaj.chat.rag.WriteThroughIndexer;
 import kotowski.mm.backend.ajaj.chat.tools.AiToolPack;
 import kotowski.mm.backend.ajaj.chat.tools.GenericToolResponse;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
@@ -8,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -15,6 +17,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -25,6 +28,11 @@ import java.util.stream.Collectors;
 public class FileTools implements AiToolPack {
 
     private final ProjectsProperties projectsProperties;
+    private final FileContentCache fileContentCache;
+    private final WriteThroughIndexer writeThroughIndexer;
+
+    @Value("${app.ai.file-tool.max-chars}")
+    private int fileToolMaxChars;
 
     private Set<Path> rootDirectories;
 
@@ -49,26 +57,25 @@ public class FileTools implements AiToolPack {
             log.info("Start listing files from directory {}", dir);
             var dirPath = Path.of(dir);
             ensureWithinAllowed(dirPath);
-            var data = Files.list(dirPath)
-                    .map(path -> {
-                        FileInfo info = new FileInfo();
-                        info.setName(path.getFileName().toString());
-                        info.setPath(path.toAbsolutePath().toString());
-                        if (Files.isDirectory(path)) {
-                            info.setSize(-1);
-                        } else {
+            try (var files = Files.list(dirPath)) {
+                var data = files
+                        .map(path -> {
+                            FileInfo info = new FileInfo();
+                            info.setName(path.getFileName().toString());
+                            info.setPath(path.toAbsolutePath().toString());
                             try {
-                                info.setSize(Files.size(path));
+                                var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                                info.setDir(attributes.isDirectory());
+                                info.setSize(attributes.isDirectory() ? -1 : attributes.size());
                             } catch (Exception e) {
                                 log.warn("Could not read file size for {}", path, e);
                                 info.setSize(-1);
                             }
-                        }
-                        info.setDir(path.toFile().isDirectory());
-                        return info;
-                    })
-                    .toList();
-            return new GenericToolResponse<>(true, null, data);
+                            return info;
+                        })
+                        .toList();
+                return new GenericToolResponse<>(true, null, data);
+            }
         } catch (IOException e) {
             log.error("Error listing files from directory {}", dir, e);
             return new GenericToolResponse<>(false, e.getMessage(), null);
@@ -76,7 +83,7 @@ public class FileTools implements AiToolPack {
     }
 
     @Tool(description = """
-            Reads the content of a local file from the file system.
+            Reads the content of a local file from the file system, optionally only a range of lines.
             
             Use this tool when the user asks to read, analyze, summarize,\s
             or inspect the contents of a specific file.
@@ -88,6 +95,10 @@ public class FileTools implements AiToolPack {
               for example:
               - `D:\\\\Projects\\\\MercatoMagic\\\\src\\\\main\\\\java\\\\com\\\\example\\\\FileService.java`
               - `/home/user/project/config/application.yaml`
+            - `fromLine` *(integer, optional)* — first line to return (1-based, inclusive), defaults to the first line.
+            - `toLine` *(integer, optional)* — last line to return (1-based, inclusive), defaults to the last line.
+            - `maxChars` *(integer, optional)* — maximum number of characters to return, defaults to a configured limit.
+            - `fromChar` *(integer, optional)* — character offset (0-based) within `fromLine` to continue a line that was cut.
             
             ---
             ### Behavior:
@@ -96,6 +107,9 @@ public class FileTools implements AiToolPack {
             - It is designed to read text files only — source code, configuration files, documentation, etc.
             - The tool **does not modify** or delete any files.
             - Use this tool only when you need to view or analyze the contents of a specific file.
+            - Content longer than `maxChars` is cut at a line boundary and `truncated` is set, continue with `fromLine` = `toLine` + 1.
+            - A single line longer than `maxChars` is returned in parts: `nextChar` is set, continue with `fromLine` = `toLine` and `fromChar` = `nextChar`.
+            - Prefer reading only the lines you need. If `sha256` matches a version you have already read, the file did not change.
             
             ---
             ### Returns:
@@ -103,19 +117,59 @@ public class FileTools implements AiToolPack {
             {
                     "success": "boolean value, that indicates if the operation was successful",
                     "errorMessage": "error message in case of failure, null otherwise",
-                    "data": "A string containing the entire file content.
+                    "data": {
+                        "path": "absolute file path",
+                        "fromLine": "first returned line (1-based)",
+                        "toLine": "last returned line (1-based)",
+                        "totalLines": "number of lines in the whole file",
+                        "sizeBytes": "size of the whole file in bytes",
+                        "sha256": "hash of the whole file content",
+                        "truncated": "true if the requested range was cut to maxChars",
+                        "content": "the requested lines of the file",
+                        "fromChar": "offset within fromLine the content starts at, null for whole lines",
+                        "nextChar": "offset within toLine to continue from when that line was cut, null otherwise"
+                    }
             }
             """)
-    GenericToolResponse<String> getFileContent(@ToolParam(description = "The absolute path to the file on the local machine") String filePath) {
+    GenericToolResponse<FileContent> getFileContent(
+            @ToolParam(description = "The absolute path to the file on the local machine") String filePath,
+            @ToolParam(description = "First line to return (1-based, inclusive)", required = false) Integer fromLine,
+            @ToolParam(description = "Last line to return (1-based, inclusive)", required = false) Integer toLine,
+            @ToolParam(description = "Maximum number of characters to return", required = false) Integer maxChars,
+            @ToolParam(description = "Character offset (0-based) within fromLine to continue a cut line", required = false) Integer fromChar) {
         try {
-            log.info("Reading file content: {}", filePath);
-            final var path = Path.of(filePath);
+            log.info("Reading file content: {} (lines {}-{})", filePath, fromLine, toLine);
+            final var path = Path.of(filePath).toAbsolutePath().normalize();
             ensureWithinAllowed(path);
-            var data = Files.readString(path);
+            var file = fileContentCache.get(path);
+            var from = fromLine == null ? 1 : Math.max(1, fromLine);
+            var to = toLine == null ? file.lineCount() : Math.min(toLine, file.lineCount());
+            if (from > to) {
+                return new GenericToolResponse<>(false,
+                        "Line range %d-%d is outside of the file with %d lines".formatted(from, to, file.lineCount()), null);
+            }
+            var limit = maxChars == null || maxChars <= 0 ? fileToolMaxChars : maxChars;
+            var offset = fromChar == null ? 0 : Math.max(0, fromChar);
+            var lastLine = file.lastLineWithin(from, to, limit);
+            FileContent data;
+            if (offset > 0 || lastLine < from) {
+                var line = file.slice(from, from);
+                if (offset > 0 && offset >= line.length()) {
+                    return new GenericToolResponse<>(false,
+                            "Offset %d is outside of line %d with %d characters".formatted(offset, from, line.length()), null);
+                }
+                var end = Math.min(line.length(), offset + limit);
+                var nextChar = end < line.length() ? end : null;
+                data = new FileContent(path.toString(), from, from, file.lineCount(), file.sizeBytes(), file.sha256(),
+                        nextChar != null || from < to, line.substring(offset, end), offset, nextChar);
+            } else {
+                data = new FileContent(path.toString(), from, lastLine, file.lineCount(), file.sizeBytes(), file.sha256(),
+                        lastLine < to, file.slice(from, lastLine), null, null);
+            }
             return new GenericToolResponse<>(true, null, data);
         } catch (IOException e) {
             log.error("Error retrieving file content from {}", filePath, e);
-            return new GenericToolResponse<>(false, null, null);
+            return new GenericToolResponse<>(false, e.getMessage(), null);
         }
     }
 
@@ -170,6 +224,8 @@ public class FileTools implements AiToolPack {
             ensureWithinAllowed(targetPath);
             Files.createDirectories(targetPath.getParent());
             Files.writeString(targetPath, content, StandardCharsets.UTF_8);
+            fileContentCache.invalidate(targetPath.normalize());
+            reindex(targetPath);
             return "File saved successfully.";
         } catch (IOException e) {
             log.error("Error writing file: {}", filePath, e);
@@ -177,6 +233,14 @@ public class FileTools implements AiToolPack {
         }
     }
 
+    private void reindex(Path path) {
+        try {
+            writeThroughIndexer.fileWritten(path);
+        } catch (RuntimeException e) {
+            log.warn("Error re-indexing written file {}", path, e);
+        }
+    }
+
     @PostConstruct
     void registerRootDirectories() {
         rootDirectories = projectsProperties.getRootDirectories().stream()
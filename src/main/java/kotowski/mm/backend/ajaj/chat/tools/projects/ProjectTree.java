@@ -0,0 +1,78 @@
+package kotowski.mm.backend.ajaj.chat.tools.projects;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFileSummary;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class ProjectTree {
+    private final Map<String, Node> apps = new TreeMap<>();
+    private final PathMatcher matcher;
+    private final int maxDepth;
+
+    ProjectTree(String glob, Integer maxDepth) {
+        this.matcher = glob == null || glob.isBlank() ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.maxDepth = maxDepth == null || maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth;
+    }
+
+    void add(IndexedFileSummary file) {
+        var path = file.getPath().replace('\\', '/');
+        if (matcher != null && !matcher.matches(Path.of(path))) {
+            return;
+        }
+        var node = apps.computeIfAbsent(file.getProjectId() + "/" + file.getAppId(), it -> new Node());
+        var segments = path.split("/");
+        for (var i = 0; i < segments.length - 1; i++) {
+            node.fileCount++;
+            node = node.dirs.computeIfAbsent(segments[i], it -> new Node());
+        }
+        node.fileCount++;
+        node.files.add(new Leaf(segments[segments.length - 1], file.getSizeBytes(), file.getResponsibility()));
+    }
+
+    String render() {
+        var tree = new StringBuilder();
+        apps.forEach((app, node) -> {
+            tree.append(app).append(" (").append(node.fileCount).append(" files)\n");
+            render(tree, node, 1);
+        });
+        return tree.toString();
+    }
+
+    private void render(StringBuilder tree, Node node, int depth) {
+        var indent = "  ".repeat(depth);
+        node.dirs.forEach((name, dir) -> {
+            tree.append(indent).append(name).append("/");
+            if (depth >= maxDepth) {
+                tree.append(" (").append(dir.fileCount).append(" files)\n");
+            } else {
+                tree.append('\n');
+                render(tree, dir, depth + 1);
+            }
+        });
+        for (var file : node.files) {
+            tree.append(indent).append(file.name());
+            if (file.sizeBytes() != null) {
+                tree.append(" [").append(file.sizeBytes()).append(" B]");
+            }
+            if (file.responsibility() != null) {
+                tree.append(" - ").append(file.responsibility());
+            }
+            tree.append('\n');
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> dirs = new TreeMap<>();
+        private final List<Leaf> files = new ArrayList<>();
+        private int fileCount;
+    }
+
+    private record Leaf(String name, Long sizeBytes, String responsibility) {
+    }
+}
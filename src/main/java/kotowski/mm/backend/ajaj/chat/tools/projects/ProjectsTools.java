@@ -1,6 +1,8 @@
 package kotowski.mm.backend.ajaj.chat.tools.projects;
 
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
 import kotowski.mm.backend.ajaj.chat.tools.AiToolPack;
+import kotowski.mm.backend.ajaj.chat.tools.GenericToolResponse;
 import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Component;
 public class ProjectsTools implements AiToolPack {
 
     private final ProjectsProperties projectsProperties;
+    private final IndexedFilesStore indexedFilesStore;
 
     @Tool(description = """
                 Retrieving a list of projects, applications and it's specifications.
@@ -46,4 +49,40 @@ public class ProjectsTools implements AiToolPack {
         return projectsProperties;
     }
 
-}
\ No newline at end of file
+    @Tool(description = """
+                Returns the tree of indexed project files in one call, use it instead of listing directories one by one.
+                The tree is built from the project index, so it contains only watched files.
+                Each file line contains its size in bytes and a short description of its responsibility, when known.
+                
+                ---
+                ### Parameters:
+                - `appId` *(string, optional)* — application identifier, all applications when empty.
+                - `glob` *(string, optional)* — glob filter for paths relative to the application root,
+                  e.g. `src/main/java/**/*.java` or `**/*Service.java`.
+                - `maxDepth` *(integer, optional)* — maximum directory depth to expand, deeper directories are
+                  collapsed to a file count. Unlimited when empty.
+                
+                ---
+                ### Returns:
+                {
+                        "success": "boolean value, that indicates if the operation was successful",
+                        "errorMessage": "error message in case of failure, null otherwise",
+                        "data": "indented tree, one directory or file per line: `name [size B] - responsibility`"
+                }
+            """)
+    GenericToolResponse<String> getProjectTree(
+            @ToolParam(description = "Application identifier, all applications when empty", required = false) String appId,
+            @ToolParam(description = "Glob filter for paths relative to the application root", required = false) String glob,
+            @ToolParam(description = "Maximum directory depth to expand", required = false) Integer maxDepth) {
+        try {
+            log.info("Returning project tree for app {} (glob: {}, depth: {})", appId, glob, maxDepth);
+            var tree = new ProjectTree(glob, maxDepth);
+            indexedFilesStore.getSummaries(appId == null || appId.isBlank() ? null : appId).forEach(tree::add);
+            return new GenericToolResponse<>(true, null, tree.render());
+        } catch (Exception e) {
+            log.error("Error building project tree for app {}", appId, e);
+            return new GenericToolResponse<>(false, e.getMessage(), null);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package kotowski.mm.backend.ajaj.chat.tools.rag;
 
+import kotowski.mm.backend.ajaj.chat.rag.store.VectorSearch;
 import kotowski.mm.backend.ajaj.chat.tools.AiToolPack;
 import kotowski.mm.backend.ajaj.chat.tools.GenericToolResponse;
 import lombok.RequiredArgsConstructor;
@@ -7,7 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +18,7 @@ import java.util.stream.Collectors;
 @Component
 @RequiredArgsConstructor
 public class RagTools implements AiToolPack {
-    private final VectorStore vectorStore;
+    private final VectorSearch vectorSearch;
 
     @Value("${app.ai.rag-tool.context-results}")
     private int ragContextResults;
@@ -25,6 +26,9 @@ public class RagTools implements AiToolPack {
     @Value("${app.ai.rag-tool.similarity-threshold}")
     private double similiarityThreshold;
 
+    @Value("${app.ai.rag-tool.ef-search}")
+    private int efSearch;
+
     @Tool(description = """
             Retrieves the most relevant context information from the project's knowledge base (RAG)
             for a given user question, using semantic similarity search over vector embeddings.
@@ -70,7 +74,7 @@ public class RagTools implements AiToolPack {
     public GenericToolResponse<String> getAnyContextData(@ToolParam(description = "The question to retrieve context for") String query) {
         try {
             log.info("Retrieving RAG context for question (tool): {}", query);
-            var data = vectorStore.similaritySearch(query).stream()
+            var data = vectorSearch.search(SearchRequest.builder().query(query).build(), efSearch).stream()
                     .map(Document::getFormattedContent)
                     .collect(Collectors.joining("\n---\n"));
             return new GenericToolResponse<>(true, null, data);
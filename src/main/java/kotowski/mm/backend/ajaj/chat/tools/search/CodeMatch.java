@@ -0,0 +1,7 @@
+package kotowski.mm.backend.ajaj.chat.tools.search;
+
+public record CodeMatch(
+        String path,
+        int line,
+        String text) {
+}
@@ -0,0 +1,9 @@
+package kotowski.mm.backend.ajaj.chat.tools.search;
+
+import java.util.List;
+
+public record CodeSearchResult(
+        List<CodeMatch> matches,
+        int page,
+        boolean hasMore) {
+}
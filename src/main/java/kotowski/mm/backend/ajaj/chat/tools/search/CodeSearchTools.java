@@ -0,0 +1,109 @@
+package kotowski.mm.backend.ajaj.chat.tools.search;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.chat.tools.AiToolPack;
+import kotowski.mm.backend.ajaj.chat.tools.GenericToolResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CodeSearchTools implements AiToolPack {
+    private static final Pattern REGEX_SPECIAL_CHARS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final IndexedFilesStore indexedFilesStore;
+
+    @Value("${app.ai.code-search.page-size}")
+    private int pageSize;
+
+    @Value("${app.ai.code-search.max-line-length}")
+    private int maxLineLength;
+
+    @Tool(description = """
+            Exact code search (like grep) over all watched project files, backed by a trigram index.
+            
+            Use this tool to find every usage or definition of an identifier, a string literal, a configuration key
+            or any other exact text. Prefer it over getAnyContextData when you know the exact text you are looking for,
+            and over reading files one by one with getFileContent.
+            
+            ---
+            ### Parameters:
+            - `query` *(string)* — text to search for, or a POSIX regular expression when `regex` is true.
+              Examples: `RagService`, `app.ai.rag`, `class \\\\w+Service`.
+            - `regex` *(boolean, optional)* — treat `query` as a regular expression, defaults to false (substring search).
+            - `ignoreCase` *(boolean, optional)* — case-insensitive search, defaults to false.
+            - `appId` *(string, optional)* — limit the search to one application.
+            - `pathPattern` *(string, optional)* — case-insensitive regular expression the file path must match,
+              e.g. `\\\\.java$` or `src/main/resources`.
+            - `page` *(integer, optional)* — 0-based page of results, defaults to 0.
+            
+            ---
+            ### Returns:
+            {
+                    "success": "boolean value, that indicates if the operation was successful",
+                    "errorMessage": "error message in case of failure, null otherwise",
+                    "data": {
+                        "matches": [
+                            {
+                                "path": "absolute file path",
+                                "line": "1-based line number",
+                                "text": "matching line, long lines are shortened"
+                            }
+                        ],
+                        "page": "returned page",
+                        "hasMore": "true if there are more matches on the next page"
+                    }
+            }
+            """)
+    public GenericToolResponse<CodeSearchResult> searchCode(
+            @ToolParam(description = "Text or regular expression to search for") String query,
+            @ToolParam(description = "Treat query as a regular expression", required = false) Boolean regex,
+            @ToolParam(description = "Case-insensitive search", required = false) Boolean ignoreCase,
+            @ToolParam(description = "Application identifier", required = false) String appId,
+            @ToolParam(description = "Regular expression for the file path", required = false) String pathPattern,
+            @ToolParam(description = "0-based page of results", required = false) Integer page) {
+        try {
+            log.info("Searching code for {} (regex: {}, app: {}, path: {}, page: {})", query, regex, appId, pathPattern, page);
+            if (query == null || query.isEmpty()) {
+                return new GenericToolResponse<>(false, "Query must not be empty", null);
+            }
+            var pattern = Boolean.TRUE.equals(regex) ? query : quote(query);
+            var pageNumber = page == null || page < 0 ? 0 : page;
+            var lines = indexedFilesStore.searchLines(
+                    pattern,
+                    Boolean.TRUE.equals(ignoreCase),
+                    appId == null || appId.isBlank() ? null : appId,
+                    pathPattern == null || pathPattern.isBlank() ? null : pathPattern,
+                    pageSize + 1,
+                    pageNumber * pageSize);
+            var matches = lines.stream()
+                    .limit(pageSize)
+                    .map(line -> new CodeMatch(
+                            indexedFilesStore.getPath(line.getProjectId(), line.getAppId(), line.getPath()).toString(),
+                            line.getLineNumber(),
+                            shorten(line.getContent())))
+                    .toList();
+            return new GenericToolResponse<>(true, null, new CodeSearchResult(matches, pageNumber, lines.size() > pageSize));
+        } catch (Exception e) {
+            log.error("Error searching code for {}", query, e);
+            return new GenericToolResponse<>(false, "Error searching code: " + e.getMessage(), null);
+        }
+    }
+
+    public static String quote(String text) {
+        return REGEX_SPECIAL_CHARS.matcher(text).replaceAll(result -> Matcher.quoteReplacement("\\" + result.group()));
+    }
+
+    private String shorten(String line) {
+        var trimmed = line.strip();
+        return trimmed.length() > maxLineLength ? trimmed.substring(0, maxLineLength) + "…" : trimmed;
+    }
+}
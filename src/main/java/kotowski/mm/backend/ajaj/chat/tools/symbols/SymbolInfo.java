@@ -0,0 +1,10 @@
+package kotowski.mm.backend.ajaj.chat.tools.symbols;
+
+public record SymbolInfo(
+        String kind,
+        String name,
+        String container,
+        String path,
+        int line,
+        Integer chunkNumber) {
+}
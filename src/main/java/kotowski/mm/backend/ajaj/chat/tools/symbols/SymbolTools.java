@@ -0,0 +1,115 @@
+package kotowski.mm.backend.ajaj.chat.tools.symbols;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbolStore;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.chat.tools.AiToolPack;
+import kotowski.mm.backend.ajaj.chat.tools.GenericToolResponse;
+import kotowski.mm.backend.ajaj.chat.tools.search.CodeSearchResult;
+import kotowski.mm.backend.ajaj.chat.tools.search.CodeSearchTools;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SymbolTools implements AiToolPack {
+    private final CodeSymbolStore codeSymbolStore;
+    private final IndexedFilesStore indexedFilesStore;
+    private final CodeSearchTools codeSearchTools;
+
+    @Value("${app.ai.code-search.page-size}")
+    private int pageSize;
+
+    @Tool(description = """
+            Finds where a symbol is defined, using the project symbol table built during indexing.
+            
+            Use this tool to answer "where is X defined" questions instead of a semantic search and reading several files.
+            Symbols are classes, interfaces, enums, records, methods, functions, configuration keys and SQL tables.
+            
+            ---
+            ### Parameters:
+            - `name` *(string)* — symbol name, case-insensitive, e.g. `RagService`, `buildDb`, `indexed_file`.
+              Configuration keys are full dotted paths, e.g. `app.ai.rag.context-results`.
+              A trailing `*` searches by prefix, e.g. `getFile*` or `app.ai.*`.
+            - `kind` *(string, optional)* — one of: class, interface, enum, record, method, function, config_key, sql_table.
+            - `appId` *(string, optional)* — limit the search to one application.
+            
+            ---
+            ### Returns:
+            {
+                    "success": "boolean value, that indicates if the operation was successful",
+                    "errorMessage": "error message in case of failure, null otherwise",
+                    "data": [
+                        {
+                            "kind": "symbol kind",
+                            "name": "symbol name",
+                            "container": "enclosing class, configuration section or SQL schema, may be null",
+                            "path": "absolute file path",
+                            "line": "1-based line of the definition, read it with getFileContent",
+                            "chunkNumber": "number of the RAG chunk containing the definition, may be null"
+                        }
+                    ]
+            }
+            """)
+    public GenericToolResponse<List<SymbolInfo>> findSymbol(
+            @ToolParam(description = "Symbol name, a trailing * searches by prefix") String name,
+            @ToolParam(description = "Symbol kind", required = false) String kind,
+            @ToolParam(description = "Application identifier", required = false) String appId) {
+        try {
+            log.info("Finding symbol {} (kind: {}, app: {})", name, kind, appId);
+            if (name == null || name.isBlank()) {
+                return new GenericToolResponse<>(false, "Name must not be empty", null);
+            }
+            var prefix = name.endsWith("*");
+            var data = codeSymbolStore.find(
+                            prefix ? name.substring(0, name.length() - 1) : name,
+                            prefix,
+                            kind == null || kind.isBlank() ? null : kind.toLowerCase(),
+                            appId == null || appId.isBlank() ? null : appId,
+                            pageSize).stream()
+                    .map(symbol -> new SymbolInfo(
+                            symbol.kind(),
+                            symbol.name(),
+                            symbol.container(),
+                            indexedFilesStore.getPath(symbol.projectId(), symbol.appId(), symbol.path()).toString(),
+                            symbol.lineNumber(),
+                            symbol.chunkNumber()))
+                    .toList();
+            return new GenericToolResponse<>(true, null, data);
+        } catch (Exception e) {
+            log.error("Error finding symbol {}", name, e);
+            return new GenericToolResponse<>(false, "Error finding symbol: " + e.getMessage(), null);
+        }
+    }
+
+    @Tool(description = """
+            Finds all lines referencing a symbol (whole-word, case-sensitive match) in the watched project files.
+            Use it after findSymbol to find usages of a class, method, configuration key or SQL table.
+            
+            ---
+            ### Parameters:
+            - `name` *(string)* — exact symbol name, e.g. `RagService` or `indexed_file`.
+            - `appId` *(string, optional)* — limit the search to one application.
+            - `page` *(integer, optional)* — 0-based page of results, defaults to 0.
+            
+            ---
+            ### Returns:
+            The same structure as the searchCode tool: matches with file path, line number and line text, page and hasMore.
+            """)
+    public GenericToolResponse<CodeSearchResult> findReferences(
+            @ToolParam(description = "Exact symbol name") String name,
+            @ToolParam(description = "Application identifier", required = false) String appId,
+            @ToolParam(description = "0-based page of results", required = false) Integer page) {
+        log.info("Finding references of {} (app: {}, page: {})", name, appId, page);
+        if (name == null || name.isBlank()) {
+            return new GenericToolResponse<>(false, "Name must not be empty", null);
+        }
+        return codeSearchTools.searchCode("\\m" + CodeSearchTools.quote(name.strip()) + "\\M", true, false, appId, null, page);
+    }
+}
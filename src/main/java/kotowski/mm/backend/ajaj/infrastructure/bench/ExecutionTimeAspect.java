@@ -1,5 +1,6 @@
 package kotowski.mm.backend.ajaj.infrastructure.bench;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -9,14 +10,21 @@ import org.springframework.stereotype.Component;
 @Aspect
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class ExecutionTimeAspect {
+    private static final String METHOD_PIPELINE = "method";
+
+    private final StageTimer stageTimer;
 
     @Around("@annotation(LogExecutionTime)")
     public Object logExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long start = System.nanoTime();
-        Object result = joinPoint.proceed();
-        long duration = System.nanoTime() - start;
-        log.info("{} took {} ms", joinPoint.getSignature(), duration / 1_000_000.0);
-        return result;
+        var signature = joinPoint.getSignature();
+        var activeStage = stageTimer.begin(METHOD_PIPELINE, signature.getDeclaringType().getSimpleName() + "." + signature.getName(), null);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            stageTimer.end(activeStage);
+            log.info("{} took {} ms", signature, (System.nanoTime() - activeStage.startedAt) / 1_000_000.0);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package kotowski.mm.backend.ajaj.infrastructure.bench;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class MetricsReport {
+    private final MeterRegistry meterRegistry;
+
+    public String render(String... prefixes) {
+        var report = new StringBuilder();
+        meterRegistry.getMeters().stream()
+                .filter(meter -> Arrays.stream(prefixes).anyMatch(meter.getId().getName()::startsWith))
+                .sorted(Comparator.comparing(meter -> meter.getId().toString()))
+                .forEach(meter -> {
+                    var line = renderMeter(meter);
+                    if (line != null) {
+                        report.append(line).append('\n');
+                    }
+                });
+        return report.toString();
+    }
+
+    private static String renderMeter(Meter meter) {
+        return switch (meter) {
+            case Timer timer -> renderSnapshot(meter, timer.takeSnapshot(), TimeUnit.MILLISECONDS, "ms");
+            case DistributionSummary summary -> renderSnapshot(meter, summary.takeSnapshot(), null, "");
+            case Counter counter -> "%s count=%.0f".formatted(name(meter), counter.count());
+            default -> null;
+        };
+    }
+
+    private static String renderSnapshot(Meter meter, HistogramSnapshot snapshot, TimeUnit unit, String suffix) {
+        if (snapshot.count() == 0) {
+            return null;
+        }
+        var percentiles = Arrays.stream(snapshot.percentileValues())
+                .map(value -> "p%.0f=%.1f%s".formatted(value.percentile() * 100, value(value, unit), suffix))
+                .collect(Collectors.joining(" "));
+        return "%s count=%d mean=%.1f%s max=%.1f%s %s".formatted(
+                name(meter),
+                snapshot.count(),
+                unit == null ? snapshot.mean() : snapshot.mean(unit), suffix,
+                unit == null ? snapshot.max() : snapshot.max(unit), suffix,
+                percentiles);
+    }
+
+    private static double value(ValueAtPercentile value, TimeUnit unit) {
+        return unit == null ? value.value() : value.value(unit);
+    }
+
+    private static String name(Meter meter) {
+        var tags = meter.getId().getTags().stream()
+                .map(Tag::getValue)
+                .collect(Collectors.joining(","));
+        return tags.isEmpty() ? meter.getId().getName() : meter.getId().getName() + "[" + tags + "]";
+    }
+}
@@ -0,0 +1,24 @@
+package kotowski.mm.backend.ajaj.infrastructure.bench;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ajaj.Stage")
+@Label("Ajaj Stage")
+@Category("Ajaj")
+@Description("Execution of a single instrumented pipeline stage")
+@StackTrace(false)
+class StageEvent extends Event {
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Subject")
+    String subject;
+}
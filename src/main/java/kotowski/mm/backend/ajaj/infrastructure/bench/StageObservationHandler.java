@@ -0,0 +1,34 @@
+package kotowski.mm.backend.ajaj.infrastructure.bench;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.embedding.observation.EmbeddingModelObservationContext;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+class StageObservationHandler implements ObservationHandler<EmbeddingModelObservationContext> {
+    private static final String EMBEDDING_STAGE = "embedding";
+
+    private final StageTimer stageTimer;
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof EmbeddingModelObservationContext && stageTimer.current() != null;
+    }
+
+    @Override
+    public void onStart(EmbeddingModelObservationContext context) {
+        var parent = stageTimer.current();
+        context.put(StageTimer.ActiveStage.class, stageTimer.begin(parent.pipeline, EMBEDDING_STAGE, parent.subject));
+    }
+
+    @Override
+    public void onStop(EmbeddingModelObservationContext context) {
+        StageTimer.ActiveStage activeStage = context.get(StageTimer.ActiveStage.class);
+        if (activeStage != null) {
+            stageTimer.end(activeStage);
+        }
+    }
+}
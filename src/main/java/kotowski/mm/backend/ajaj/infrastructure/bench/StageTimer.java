@@ -0,0 +1,87 @@
+package kotowski.mm.backend.ajaj.infrastructure.bench;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.ThrowingSupplier;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times pipeline stages as Micrometer timers ({@code ajaj.<pipeline>.stage}) and JFR {@code ajaj.Stage} events.
+ * Stages may be nested on the same thread, the timer of an outer stage of the same pipeline records only its own
+ * (exclusive) time, while the JFR events keep the full nesting.
+ */
+@Component
+@RequiredArgsConstructor
+public class StageTimer {
+    private static final ThreadLocal<Deque<ActiveStage>> ACTIVE_STAGES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T time(String pipeline, String stage, String subject, ThrowingSupplier<T> supplier) {
+        var activeStage = begin(pipeline, stage, subject);
+        try {
+            return supplier.get();
+        } finally {
+            end(activeStage);
+        }
+    }
+
+    public void run(String pipeline, String stage, String subject, Runnable runnable) {
+        time(pipeline, stage, subject, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    ActiveStage begin(String pipeline, String stage, String subject) {
+        var event = new StageEvent();
+        event.pipeline = pipeline;
+        event.stage = stage;
+        event.subject = subject;
+        event.begin();
+        var activeStage = new ActiveStage(pipeline, stage, subject, event, System.nanoTime());
+        ACTIVE_STAGES.get().push(activeStage);
+        return activeStage;
+    }
+
+    void end(ActiveStage activeStage) {
+        var elapsed = System.nanoTime() - activeStage.startedAt;
+        var stages = ACTIVE_STAGES.get();
+        stages.remove(activeStage);
+        var parent = stages.peek();
+        if (parent != null && parent.pipeline.equals(activeStage.pipeline)) {
+            parent.childNanos += elapsed;
+        }
+        activeStage.event.commit();
+        Timer.builder("ajaj." + activeStage.pipeline + ".stage")
+                .tag("stage", activeStage.stage)
+                .register(meterRegistry)
+                .record(elapsed - activeStage.childNanos, TimeUnit.NANOSECONDS);
+    }
+
+    ActiveStage current() {
+        return ACTIVE_STAGES.get().peek();
+    }
+
+    static final class ActiveStage {
+        final String pipeline;
+        final String stage;
+        final String subject;
+        final StageEvent event;
+        final long startedAt;
+        long childNanos;
+
+        private ActiveStage(String pipeline, String stage, String subject, StageEvent event, long startedAt) {
+            this.pipeline = pipeline;
+            this.stage = stage;
+            this.subject = subject;
+            this.event = event;
+            this.startedAt = startedAt;
+        }
+    }
+}
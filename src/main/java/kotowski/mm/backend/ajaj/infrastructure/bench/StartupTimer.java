@@ -0,0 +1,54 @@
+package kotowski.mm.backend.ajaj.infrastructure.bench;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Records the time from JVM start to a refreshed context and to the first prompt, tagged with the start mode, so the
+ * fast-start setup can be compared with a standard launch. The context is measured when it has started, before the
+ * command line runners, because the chat loop is one of them and ready is only published once it exits.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupTimer {
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void contextStarted() {
+        record("started");
+    }
+
+    public void promptReady() {
+        record("prompt");
+    }
+
+    private void record(String stage) {
+        var sinceJvmStart = Duration.ofMillis(System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        var mode = mode();
+        Timer.builder("ajaj.startup")
+                .tag("stage", stage)
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(sinceJvmStart);
+        log.info("Startup {} after {} ms ({})", stage, sinceJvmStart.toMillis(), mode);
+    }
+
+    private String mode() {
+        var cds = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+        var lazy = environment.getProperty("spring.main.lazy-initialization", Boolean.class, false);
+        return "aot=%s,cds=%s,lazy=%s".formatted(AotDetector.useGeneratedArtifacts(), cds, lazy);
+    }
+}
@@ -0,0 +1,31 @@
+package kotowski.mm.backend.ajaj.infrastructure.config;
+
+import kotowski.mm.backend.ajaj.infrastructure.ollama.ModelTask;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ai.models")
+public class ModelRoutingProperties {
+    private Map<ModelTask, TaskModel> tasks = new EnumMap<>(ModelTask.class);
+
+    public TaskModel getTask(ModelTask task) {
+        return tasks.getOrDefault(task, new TaskModel());
+    }
+
+    /**
+     * Unset values fall back to {@code spring.ai.ollama.chat.options}.
+     */
+    @Data
+    public static class TaskModel {
+        private String model;
+        private Integer numCtx;
+        private Double temperature;
+        private ModelTask escalateTo;
+    }
+}
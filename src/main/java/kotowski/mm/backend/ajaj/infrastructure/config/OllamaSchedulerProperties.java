@@ -0,0 +1,25 @@
+package kotowski.mm.backend.ajaj.infrastructure.config;
+
+import kotowski.mm.backend.ajaj.infrastructure.ollama.OllamaPriority;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ai.ollama-scheduler")
+public class OllamaSchedulerProperties {
+    private int slots = 1;
+    private Map<OllamaPriority, Duration> queueTimeout = new EnumMap<>(OllamaPriority.class);
+    private int maxRetries = 3;
+    private Duration initialBackoff = Duration.ofMillis(500);
+    private Duration maxBackoff = Duration.ofSeconds(10);
+
+    public Duration getQueueTimeout(OllamaPriority priority) {
+        return queueTimeout.getOrDefault(priority, Duration.ofMinutes(5));
+    }
+}
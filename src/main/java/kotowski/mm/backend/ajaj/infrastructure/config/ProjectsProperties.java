@@ -79,6 +79,11 @@ public class ProjectsProperties {
         WINDOWS
     }
 
+    public enum ChangeSource {
+        MTIME,
+        GIT
+    }
+
     @Data
     public static class Project {
         private String id;
@@ -92,6 +97,7 @@ public class ProjectsProperties {
         private AppType type;
         private String path;
         private DevelopmentPlatform developmentPlatform;
+        private ChangeSource changeSource = ChangeSource.MTIME;
         private List<WatchDirectory> watch;
     }
 
@@ -99,5 +105,6 @@ public class ProjectsProperties {
     public static class WatchDirectory {
         private String path;
         private List<String> patterns;
+        private List<String> exclude = List.of();
     }
 }
\ No newline at end of file
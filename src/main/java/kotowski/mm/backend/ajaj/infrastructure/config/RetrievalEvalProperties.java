@@ -0,0 +1,24 @@
+package kotowski.mm.backend.ajaj.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ai.retrieval-eval")
+public class RetrievalEvalProperties {
+    private String results = "retrieval-eval.jsonl";
+    private List<Configuration> configurations = new ArrayList<>();
+
+    @Data
+    public static class Configuration {
+        private String name;
+        private int topK;
+        private double similarityThreshold;
+        private int efSearch;
+    }
+}
@@ -0,0 +1,28 @@
+package kotowski.mm.backend.ajaj.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ai.tool-execution")
+public class ToolExecutionProperties {
+    private boolean parallel = true;
+    private int defaultConcurrency = 4;
+    private Map<String, Integer> concurrency = new HashMap<>();
+    private Set<String> mutatingTools = new HashSet<>();
+
+    public int getConcurrency(String toolName) {
+        return concurrency.getOrDefault(toolName, defaultConcurrency);
+    }
+
+    public boolean isMutating(String toolName) {
+        return mutatingTools.contains(toolName);
+    }
+}
@@ -0,0 +1,17 @@
+package kotowski.mm.backend.ajaj.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ai.vector-index")
+public class VectorIndexProperties {
+    private int m = 16;
+    private int efConstruction = 64;
+    private int maintenanceWorkers = 4;
+    private String maintenanceWorkMem = "1GB";
+    private int deferMinFiles = 2000;
+    private double reindexDeleteRatio = 0.3;
+}
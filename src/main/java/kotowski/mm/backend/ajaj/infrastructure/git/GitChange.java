@@ -0,0 +1,16 @@
+package kotowski.mm.backend.ajaj.infrastructure.git;
+
+public record GitChange(
+        Status status,
+        String path,
+        String oldPath,
+        boolean contentChanged
+) {
+
+    public enum Status {
+        ADDED,
+        MODIFIED,
+        DELETED,
+        RENAMED
+    }
+}
@@ -0,0 +1,112 @@
+package kotowski.mm.backend.ajaj.infrastructure.git;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Thin wrapper over the git command line. All paths are relative to the given directory, which may be a
+ * subdirectory of the repository.
+ */
+@Slf4j
+@Component
+public class GitClient {
+
+    public Optional<String> head(Path directory) {
+        try {
+            return Optional.of(run(directory, "rev-parse", "HEAD").strip());
+        } catch (IllegalStateException e) {
+            log.debug("No git HEAD in {}: {}", directory, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public boolean hasCommit(Path directory, String commit) {
+        try {
+            run(directory, "cat-file", "-e", commit + "^{commit}");
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Committed and uncommitted changes of tracked files between {@code commit} and the working tree, plus untracked
+     * files.
+     */
+    public List<GitChange> changesSince(Path directory, String commit) {
+        var changes = parseNameStatus(run(directory, "diff", "--name-status", "-M", "-z", "--relative", commit, "--", "."));
+        untracked(directory).forEach(path -> changes.add(new GitChange(GitChange.Status.ADDED, path, null, true)));
+        return changes;
+    }
+
+    public Set<String> dirtyPaths(Path directory) {
+        var paths = new LinkedHashSet<String>();
+        split(run(directory, "diff", "--name-only", "-z", "--relative", "HEAD", "--", ".")).forEach(paths::add);
+        paths.addAll(untracked(directory));
+        return paths;
+    }
+
+    private List<String> untracked(Path directory) {
+        return split(run(directory, "ls-files", "--others", "--exclude-standard", "-z", "--", "."));
+    }
+
+    static List<GitChange> parseNameStatus(String output) {
+        var tokens = split(output);
+        var changes = new ArrayList<GitChange>();
+        for (var i = 0; i < tokens.size(); i++) {
+            var status = tokens.get(i);
+            switch (status.charAt(0)) {
+                case 'R' -> {
+                    var similarity = status.length() > 1 ? Integer.parseInt(status.substring(1)) : 100;
+                    changes.add(new GitChange(GitChange.Status.RENAMED, tokens.get(i + 2), tokens.get(i + 1), similarity < 100));
+                    i += 2;
+                }
+                case 'C' -> {
+                    changes.add(new GitChange(GitChange.Status.ADDED, tokens.get(i + 2), null, true));
+                    i += 2;
+                }
+                case 'A' -> changes.add(new GitChange(GitChange.Status.ADDED, tokens.get(++i), null, true));
+                case 'D' -> changes.add(new GitChange(GitChange.Status.DELETED, tokens.get(++i), null, true));
+                default -> changes.add(new GitChange(GitChange.Status.MODIFIED, tokens.get(++i), null, true));
+            }
+        }
+        return changes;
+    }
+
+    private static List<String> split(String output) {
+        return Arrays.stream(output.split("\0"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private static String run(Path directory, String... args) {
+        var command = new ArrayList<String>(List.of("git", "-C", directory.toString()));
+        command.addAll(List.of(args));
+        try {
+            var process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            var exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IllegalStateException("git %s failed with exit code %d".formatted(String.join(" ", args), exitCode));
+            }
+            return output;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to run git", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running git", e);
+        }
+    }
+}
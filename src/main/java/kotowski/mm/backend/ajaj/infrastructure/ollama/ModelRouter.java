@@ -0,0 +1,71 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import kotowski.mm.backend.ajaj.infrastructure.config.ModelRoutingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Resolves the model and options of each task on every call, so simple high-volume tasks can run on a small model
+ * and escalate to a bigger one when their answer does not pass a quality check.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ModelRouter {
+    private final ModelRoutingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.ai.ollama.chat.options.model}")
+    private String defaultModel;
+
+    public OllamaChatOptions.Builder options(ModelTask task) {
+        var taskModel = properties.getTask(task);
+        return OllamaChatOptions.builder()
+                .model(taskModel.getModel())
+                .numCtx(numCtx(task))
+                .temperature(taskModel.getTemperature());
+    }
+
+    /**
+     * Ollama reloads a model whenever its context size changes, so a task running on the chat model uses the context
+     * size of the chat task instead of its own.
+     */
+    Integer numCtx(ModelTask task) {
+        if (task == ModelTask.CHAT || !Objects.equals(model(task), model(ModelTask.CHAT))) {
+            return properties.getTask(task).getNumCtx();
+        }
+        return properties.getTask(ModelTask.CHAT).getNumCtx();
+    }
+
+    /**
+     * @return the task to retry with, empty when none is configured or it would use the same model
+     */
+    public Optional<ModelTask> escalation(ModelTask task) {
+        var escalateTo = properties.getTask(task).getEscalateTo();
+        if (escalateTo == null || escalateTo == task || Objects.equals(model(escalateTo), model(task))) {
+            return Optional.empty();
+        }
+        return Optional.of(escalateTo);
+    }
+
+    public void escalated(ModelTask task, String reason) {
+        log.info("Escalating {} to {}: {}", task.getTag(), properties.getTask(task).getEscalateTo().getTag(), reason);
+        Counter.builder("ajaj.model.escalations")
+                .tag("task", task.getTag())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private String model(ModelTask task) {
+        var model = properties.getTask(task).getModel();
+        return model != null ? model : defaultModel;
+    }
+}
@@ -0,0 +1,14 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ModelTask {
+    CHAT("chat"),
+    REWRITE("rewrite"),
+    METADATA("metadata");
+
+    private final String tag;
+}
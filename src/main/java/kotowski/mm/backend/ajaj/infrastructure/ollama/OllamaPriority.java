@@ -0,0 +1,19 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum OllamaPriority {
+    INTERACTIVE("interactive", false),
+    REWRITE("rewrite", false),
+    WRITE_THROUGH("write-through", true),
+    INDEXING("indexing", true);
+
+    private final String tag;
+    /**
+     * Work that is not part of a chat turn, even when it runs during one.
+     */
+    private final boolean background;
+}
@@ -0,0 +1,240 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kotowski.mm.backend.ajaj.infrastructure.config.OllamaSchedulerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for every HTTP call to Ollama. At most {@code slots} requests are in flight; the others wait in a
+ * priority queue, so interactive chat overtakes queued rewrite and indexing prompts. The priority is taken from the
+ * calling thread, see {@link #withPriority(OllamaPriority, Supplier)}, and defaults to interactive.
+ */
+@Slf4j
+@Component
+public class OllamaScheduler {
+    private final OllamaSchedulerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final URI baseUrl;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<OllamaPriority, AtomicInteger> queued = new EnumMap<>(OllamaPriority.class);
+    private final AtomicInteger active = new AtomicInteger();
+    private final ThreadLocal<OllamaPriority> priority = new ThreadLocal<>();
+    private long sequence;
+
+    public OllamaScheduler(OllamaSchedulerProperties properties,
+                           MeterRegistry meterRegistry,
+                           @Value("${spring.ai.ollama.base-url}") String baseUrl) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.baseUrl = URI.create(baseUrl);
+        for (var value : OllamaPriority.values()) {
+            var depth = new AtomicInteger();
+            queued.put(value, depth);
+            Gauge.builder("ajaj.ollama.queue", depth, AtomicInteger::get)
+                    .tag("priority", value.getTag())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ajaj.ollama.active", active, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    public <T> T withPriority(OllamaPriority priority, Supplier<T> supplier) {
+        var previous = this.priority.get();
+        this.priority.set(priority);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                this.priority.remove();
+            } else {
+                this.priority.set(previous);
+            }
+        }
+    }
+
+    public void withPriority(OllamaPriority priority, Runnable runnable) {
+        withPriority(priority, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public OllamaPriority currentPriority() {
+        var current = priority.get();
+        return current == null ? OllamaPriority.INTERACTIVE : current;
+    }
+
+    boolean handles(URI uri) {
+        return baseUrl.getHost().equalsIgnoreCase(uri.getHost()) && port(baseUrl) == port(uri);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    Permit acquire(OllamaPriority priority) {
+        var waiter = enqueue(priority);
+        var timeout = properties.getQueueTimeout(priority);
+        try {
+            return waiter.granted.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(waiter);
+            throw rejected(priority, timeout);
+        } catch (InterruptedException e) {
+            abandon(waiter);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an Ollama slot", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    Mono<Permit> acquireAsync(OllamaPriority priority) {
+        return Mono.defer(() -> {
+            var waiter = enqueue(priority);
+            var timeout = properties.getQueueTimeout(priority);
+            return Mono.fromFuture(waiter.granted, true)
+                    .timeout(timeout)
+                    .onErrorMap(TimeoutException.class, e -> rejected(priority, timeout))
+                    .doOnError(e -> abandon(waiter))
+                    .doOnCancel(() -> abandon(waiter));
+        });
+    }
+
+    boolean isRetryable(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    int getMaxRetries() {
+        return properties.getMaxRetries();
+    }
+
+    Duration backoff(int attempt) {
+        var backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempt - 1, 16));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+
+    void retrying(int attempt, String reason) {
+        log.warn("Ollama call failed ({}), retry {}/{}", reason, attempt, properties.getMaxRetries());
+        Counter.builder("ajaj.ollama.retries")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Waiter enqueue(OllamaPriority priority) {
+        lock.lock();
+        try {
+            var waiter = new Waiter(priority, sequence++, System.nanoTime());
+            if (active.get() < properties.getSlots() && queue.isEmpty()) {
+                active.incrementAndGet();
+                grant(waiter);
+            } else {
+                queue.add(waiter);
+                queued.get(priority).incrementAndGet();
+            }
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void abandon(Waiter waiter) {
+        lock.lock();
+        try {
+            if (queue.remove(waiter)) {
+                queued.get(waiter.priority).decrementAndGet();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        var permit = waiter.granted.getNow(null);
+        if (permit != null) {
+            permit.close();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            var next = queue.poll();
+            if (next == null) {
+                active.decrementAndGet();
+            } else {
+                queued.get(next.priority).decrementAndGet();
+                grant(next);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grant(Waiter waiter) {
+        Timer.builder("ajaj.ollama.wait")
+                .tag("priority", waiter.priority.getTag())
+                .register(meterRegistry)
+                .record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+        waiter.granted.complete(new Permit());
+    }
+
+    private TransientAiException rejected(OllamaPriority priority, Duration timeout) {
+        Counter.builder("ajaj.ollama.rejected")
+                .tag("priority", priority.getTag())
+                .register(meterRegistry)
+                .increment();
+        return new TransientAiException("No Ollama slot available for %s request within %s".formatted(priority.getTag(), timeout));
+    }
+
+    class Permit implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+
+    private record Waiter(OllamaPriority priority, long sequence, long enqueuedAt,
+                          CompletableFuture<Permit> granted) implements Comparable<Waiter> {
+        Waiter(OllamaPriority priority, long sequence, long enqueuedAt) {
+            this(priority, sequence, enqueuedAt, new CompletableFuture<>());
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            var byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
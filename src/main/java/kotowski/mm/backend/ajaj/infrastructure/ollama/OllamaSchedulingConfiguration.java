@@ -0,0 +1,20 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+class OllamaSchedulingConfiguration {
+
+    @Bean
+    RestClientCustomizer ollamaSchedulingRestClientCustomizer(OllamaScheduler scheduler) {
+        return builder -> builder.requestInterceptor(new OllamaSchedulingInterceptor(scheduler));
+    }
+
+    @Bean
+    WebClientCustomizer ollamaSchedulingWebClientCustomizer(OllamaScheduler scheduler) {
+        return builder -> builder.filter(new OllamaSchedulingFilter(scheduler));
+    }
+}
@@ -0,0 +1,57 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Streaming counterpart of {@link OllamaSchedulingInterceptor}. The slot is held until the streamed body completes,
+ * retries only happen before the response starts.
+ */
+@RequiredArgsConstructor
+class OllamaSchedulingFilter implements ExchangeFilterFunction {
+    private final OllamaScheduler scheduler;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!scheduler.handles(request.url())) {
+            return next.exchange(request);
+        }
+        var priority = scheduler.currentPriority();
+        return scheduler.acquireAsync(priority)
+                .flatMap(permit -> exchangeWithRetry(request, next)
+                        .map(response -> response.mutate()
+                                .body(body -> body.doFinally(signal -> permit.close()))
+                                .build())
+                        .doOnError(e -> permit.close())
+                        .doOnCancel(permit::close));
+    }
+
+    private Mono<ClientResponse> exchangeWithRetry(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> next.exchange(request))
+                .flatMap(response -> scheduler.isRetryable(response.statusCode())
+                        ? response.releaseBody().then(Mono.error(new RetryableStatusException(response.statusCode().value())))
+                        : Mono.just(response))
+                .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    var attempt = (int) signal.totalRetries() + 1;
+                    var failure = signal.failure();
+                    if (attempt > scheduler.getMaxRetries()
+                            || !(failure instanceof WebClientRequestException || failure instanceof RetryableStatusException)) {
+                        return Mono.error(failure);
+                    }
+                    scheduler.retrying(attempt, failure.getMessage());
+                    return Mono.delay(scheduler.backoff(attempt));
+                })));
+    }
+
+    private static class RetryableStatusException extends RuntimeException {
+        RetryableStatusException(int status) {
+            super("status " + status);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+@RequiredArgsConstructor
+class OllamaSchedulingInterceptor implements ClientHttpRequestInterceptor {
+    private final OllamaScheduler scheduler;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!scheduler.handles(request.getURI())) {
+            return execution.execute(request, body);
+        }
+        try (var ignored = scheduler.acquire(scheduler.currentPriority())) {
+            return executeWithRetry(request, body, execution);
+        }
+    }
+
+    private ClientHttpResponse executeWithRetry(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        for (var attempt = 1; ; attempt++) {
+            try {
+                var response = execution.execute(request, body);
+                if (attempt > scheduler.getMaxRetries() || !scheduler.isRetryable(response.getStatusCode())) {
+                    return response;
+                }
+                scheduler.retrying(attempt, "status " + response.getStatusCode().value());
+                response.close();
+            } catch (IOException e) {
+                if (attempt > scheduler.getMaxRetries()) {
+                    throw e;
+                }
+                scheduler.retrying(attempt, e.getMessage());
+            }
+            sleep(attempt);
+        }
+    }
+
+    private void sleep(int attempt) throws IOException {
+        try {
+            Thread.sleep(scheduler.backoff(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing off", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+create table public.app_index_state
+(
+    project_id  text                                   not null,
+    app_id      text                                   not null,
+    last_commit text                                   not null,
+    dirty_paths text[]                   default '{}'  not null,
+    updated_at  timestamp with time zone default now() not null,
+    constraint app_index_state_pk
+        primary key (project_id, app_id)
+);
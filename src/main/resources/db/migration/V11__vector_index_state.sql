@@ -0,0 +1,8 @@
+create table public.vector_index_state
+(
+    index_name       text                                   not null
+        constraint vector_index_state_pk
+            primary key,
+    deletes_at_build bigint                                 not null,
+    built_at         timestamp with time zone default now() not null
+);
@@ -0,0 +1,18 @@
+alter table public.vector_store
+    add column indexed_file_id uuid
+        constraint vector_store_indexed_file_id_fk
+            references public.indexed_file
+            on delete cascade;
+
+update public.vector_store vs
+set indexed_file_id = d.indexed_file_id
+from public.indexed_file_document d
+where vs.id = cast(d.document_id as uuid);
+
+delete from public.vector_store
+where indexed_file_id is null;
+
+create index vector_store_indexed_file_id_index
+    on public.vector_store (indexed_file_id);
+
+drop table public.indexed_file_document;
@@ -0,0 +1,6 @@
+alter table public.indexed_file
+    add column symbols_version integer null;
+
+update public.indexed_file f
+set symbols_version = 1
+where exists (select 1 from public.code_symbol s where s.indexed_file_id = f.id);
@@ -0,0 +1,16 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+create table public.indexed_file_line
+(
+    indexed_file_id uuid    not null
+        constraint indexed_file_line_indexed_file_id_fk
+            references public.indexed_file
+            on delete cascade,
+    line_number     integer not null,
+    content         text    not null,
+    constraint indexed_file_line_pk
+        primary key (indexed_file_id, line_number)
+);
+
+create index indexed_file_line_content_trgm_index
+    on public.indexed_file_line using gin (content gin_trgm_ops);
@@ -0,0 +1,24 @@
+create table public.code_symbol
+(
+    id              uuid default gen_random_uuid() not null
+        constraint code_symbol_pk
+            primary key,
+    indexed_file_id uuid                           not null
+        constraint code_symbol_indexed_file_id_fk
+            references public.indexed_file
+            on delete cascade,
+    kind            text                           not null,
+    name            text                           not null,
+    container       text                           null,
+    line_number     integer                        not null,
+    chunk_number    integer                        null,
+    document_id     text                           null
+);
+
+create index code_symbol_lower_name_index
+    on public.code_symbol (lower(name) text_pattern_ops);
+
+create index code_symbol_indexed_file_id_index
+    on public.code_symbol (indexed_file_id);
+
+delete from public.indexed_file_line;
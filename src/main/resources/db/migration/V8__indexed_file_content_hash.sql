@@ -0,0 +1,2 @@
+alter table public.indexed_file
+    add column content_hash text null;
@@ -0,0 +1,16 @@
+create table public.index_task
+(
+    indexed_file_id uuid                                   not null
+        constraint index_task_pk
+            primary key
+        constraint index_task_indexed_file_id_fk
+            references public.indexed_file
+            on delete cascade,
+    claimed_by      text                                   null,
+    lease_until     timestamp with time zone               null,
+    attempts        integer                  default 0     not null,
+    created_at      timestamp with time zone default now() not null
+);
+
+create index index_task_lease_until_index
+    on public.index_task (lease_until nulls first, created_at);
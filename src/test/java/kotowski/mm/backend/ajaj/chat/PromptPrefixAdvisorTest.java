@@ -0,0 +1,60 @@
+package kotowski.mm.backend.ajaj.chat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptPrefixAdvisorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PromptPrefixAdvisor advisor = new PromptPrefixAdvisor("chat", meterRegistry);
+
+    @Test
+    void commonPrefixEndsAtTheFirstDifference() {
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("system:rules\nuser:first", "system:rules\nuser:second"))
+                .isEqualTo(18);
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("abc", "xbc")).isZero();
+    }
+
+    @Test
+    void commonPrefixIsBoundByTheShorterPrompt() {
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("system:rules", "system:rules\nuser:question")).isEqualTo(12);
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("system:rules\nuser:question", "system:rules")).isEqualTo(12);
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("same", "same")).isEqualTo(4);
+        assertThat(PromptPrefixAdvisor.commonPrefixLength("", "prompt")).isZero();
+    }
+
+    @Test
+    void comparesPromptsOfTheSameConversation() {
+        advisor.before(request("a", "question about files"), null);
+        advisor.before(request("b", "unrelated question"), null);
+        advisor.before(request("a", "question about files"), null);
+
+        var reuse = meterRegistry.get("ajaj.prompt.prefix.reuse").summary();
+        assertThat(reuse.count()).isEqualTo(1);
+        assertThat(reuse.max()).isEqualTo(1.0);
+    }
+
+    @Test
+    void comparesPromptsWithoutConversationBySystemMessage() {
+        advisor.before(request(null, "rewrite: first"), null);
+        advisor.before(new ChatClientRequest(new Prompt(new SystemMessage("metadata"), new UserMessage("file")), Map.of()), null);
+        advisor.before(request(null, "rewrite: first"), null);
+
+        var reuse = meterRegistry.get("ajaj.prompt.prefix.reuse").summary();
+        assertThat(reuse.count()).isEqualTo(1);
+        assertThat(reuse.max()).isEqualTo(1.0);
+    }
+
+    private static ChatClientRequest request(String conversationId, String question) {
+        var prompt = new Prompt(new SystemMessage("rules"), new UserMessage(question));
+        return new ChatClientRequest(prompt, conversationId == null ? Map.of() : Map.of(ChatMemory.CONVERSATION_ID, conversationId));
+    }
+}
@@ -0,0 +1,65 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import kotowski.mm.backend.ajaj.chat.rag.store.CodeSymbol;
+import kotowski.mm.backend.ajaj.chat.rag.symbols.SymbolExtractor;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CodeSearchIndexTest {
+    private static final String CONTENT = """
+            class A {
+                void a() {}
+            }
+            class B {
+                void b() {}
+            }
+            """;
+
+    @Test
+    void assignsSymbolsToTheChunkContainingTheirLine() {
+        var chunks = List.of(
+                Document.builder().id("first").text("class A {\n    void a() {}\n}").build(),
+                Document.builder().id("second").text("class B {\n    void b() {}\n}").build());
+        var symbols = List.of(
+                symbol("A", 1),
+                symbol("a", 2),
+                symbol("B", 4),
+                symbol("b", 5));
+
+        assertThat(CodeSearchIndex.assignChunks(CONTENT, chunks, symbols))
+                .extracting(CodeSymbol::name, CodeSymbol::chunkNumber, CodeSymbol::documentId)
+                .containsExactly(
+                        tuple("A", 0, "first"),
+                        tuple("a", 0, "first"),
+                        tuple("B", 1, "second"),
+                        tuple("b", 1, "second"));
+    }
+
+    @Test
+    void chunkNotFoundInContentStartsWhereThePreviousOneDid() {
+        var chunks = List.of(
+                Document.builder().id("first").text("class A {").build(),
+                Document.builder().id("missing").text("not in the file").build(),
+                Document.builder().id("last").text("class B {").build());
+
+        assertThat(CodeSearchIndex.assignChunks(CONTENT, chunks, List.of(symbol("a", 2), symbol("b", 5))))
+                .extracting(CodeSymbol::documentId)
+                .containsExactly("missing", "last");
+    }
+
+    @Test
+    void keepsSymbolsWithoutChunks() {
+        var symbols = List.of(symbol("A", 1));
+
+        assertThat(CodeSearchIndex.assignChunks(CONTENT, List.of(), symbols)).isEqualTo(symbols);
+    }
+
+    private static CodeSymbol symbol(String name, int lineNumber) {
+        return new CodeSymbol(SymbolExtractor.METHOD, name, null, lineNumber, null, null);
+    }
+}
@@ -0,0 +1,98 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IgnoreRulesTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void patternWithoutSlashMatchesNameAtAnyDepth() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("*.log"));
+
+        assertThat(rules.isIgnored(root.resolve("app.log"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("a/b/app.log"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("app.txt"), false)).isFalse();
+    }
+
+    @Test
+    void patternWithSlashIsAnchoredToItsBase() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("/target", "docs/*.md"));
+
+        assertThat(rules.isIgnored(root.resolve("target"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("sub/target"), true)).isFalse();
+        assertThat(rules.isIgnored(root.resolve("docs/index.md"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("sub/docs/index.md"), false)).isFalse();
+        assertThat(rules.isIgnored(root.resolve("docs/api/index.md"), false)).isFalse();
+    }
+
+    @Test
+    void leadingDoubleStarAlsoMatchesAtTheBase() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("**/node_modules", "**/generated/*.java"));
+
+        assertThat(rules.isIgnored(root.resolve("node_modules"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("web/node_modules"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("generated/A.java"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("sub/generated/A.java"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("sub/A.java"), false)).isFalse();
+    }
+
+    @Test
+    void escapedHashAndExclamationMarkAreLiteral() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("\\#notes.txt", "\\!important"));
+
+        assertThat(rules.isIgnored(root.resolve("#notes.txt"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("!important"), false)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("important"), false)).isFalse();
+    }
+
+    @Test
+    void trailingSlashMatchesDirectoriesOnly() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("build/"));
+
+        assertThat(rules.isIgnored(root.resolve("build"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("sub/build"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("build"), false)).isFalse();
+    }
+
+    @Test
+    void negationReincludesAndLastMatchWins() {
+        var negated = IgnoreRules.empty().withPatterns(root, List.of("*.log", "!keep.log"));
+        var overridden = IgnoreRules.empty().withPatterns(root, List.of("!keep.log", "*.log"));
+
+        assertThat(negated.isIgnored(root.resolve("keep.log"), false)).isFalse();
+        assertThat(negated.isIgnored(root.resolve("other.log"), false)).isTrue();
+        assertThat(overridden.isIgnored(root.resolve("keep.log"), false)).isTrue();
+    }
+
+    @Test
+    void ignoredParentDirectoryIgnoresItsFiles() {
+        var rules = IgnoreRules.empty().withPatterns(root, List.of("build/"));
+
+        assertThat(rules.isIgnoredWithParents(root, root.resolve("build/classes/A.class"))).isTrue();
+        assertThat(rules.isIgnoredWithParents(root, root.resolve("src/A.java"))).isFalse();
+    }
+
+    @Test
+    void readsIgnoreFilesOfEachDirectory() throws IOException {
+        var sub = Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve(".gitignore"), "# generated sources\n*.tmp\n\n");
+        Files.writeString(sub.resolve(".ajajignore"), "/generated\n!keep.tmp\n");
+
+        var rules = IgnoreRules.empty().withDirectory(root).withDirectory(sub);
+
+        assertThat(rules.isIgnored(sub.resolve("a.tmp"), false)).isTrue();
+        assertThat(rules.isIgnored(sub.resolve("keep.tmp"), false)).isFalse();
+        assertThat(rules.isIgnored(sub.resolve("generated"), true)).isTrue();
+        assertThat(rules.isIgnored(root.resolve("generated"), true)).isFalse();
+    }
+}
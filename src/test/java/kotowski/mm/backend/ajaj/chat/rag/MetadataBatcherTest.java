@@ -0,0 +1,146 @@
+package kotowski.mm.backend.ajaj.chat.rag;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFile;
+import kotowski.mm.backend.ajaj.chat.rag.store.IndexedFilesStore;
+import kotowski.mm.backend.ajaj.infrastructure.bench.StageTimer;
+import kotowski.mm.backend.ajaj.infrastructure.config.ProjectsProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MetadataBatcherTest {
+    private final IndexedFilesStore indexedFilesStore = mock(IndexedFilesStore.class);
+    private final RagDataTransformer ragDataTransformer = mock(RagDataTransformer.class);
+    private final MetadataBatcher metadataBatcher = new MetadataBatcher(indexedFilesStore, ragDataTransformer,
+            mock(ProjectsProperties.class), new StageTimer(new SimpleMeterRegistry()));
+    private final List<IndexedFile> stored = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(metadataBatcher, "enabled", true);
+        ReflectionTestUtils.setField(metadataBatcher, "tokenBudget", 100);
+        ReflectionTestUtils.setField(metadataBatcher, "maxFileTokens", 50);
+        ReflectionTestUtils.setField(metadataBatcher, "maxFiles", 3);
+        when(indexedFilesStore.findAllById(any())).thenAnswer(invocation -> stored.reversed());
+    }
+
+    @Test
+    void groupsFilesByAppWithinTheTokenBudget() {
+        var first = file("a", 156L);
+        var other = file("b", 40L);
+        var second = file("a", 156L);
+        var third = file("a", 156L);
+
+        assertThat(plan(first, other, second, third))
+                .containsExactly(List.of(first, second), List.of(third), List.of(other));
+        verify(indexedFilesStore, times(1)).findAllById(any());
+    }
+
+    @Test
+    void limitsFilesPerBatch() {
+        var files = List.of(file("a", 4L), file("a", 4L), file("a", 4L), file("a", 4L));
+
+        assertThat(plan(files.toArray(IndexedFile[]::new)))
+                .containsExactly(files.subList(0, 3), files.subList(3, 4));
+    }
+
+    @Test
+    void describesLargeAndUnindexedFilesAlone() {
+        var small = file("a", 40L);
+        var large = file("a", 400L);
+        var unknownSize = file("a", null);
+
+        assertThat(plan(small, large, unknownSize))
+                .containsExactly(List.of(large), List.of(unknownSize), List.of(small));
+    }
+
+    @Test
+    void describesEveryFileAloneWhenDisabled() {
+        ReflectionTestUtils.setField(metadataBatcher, "enabled", false);
+        var first = file("a", 4L);
+        var second = file("a", 4L);
+
+        assertThat(plan(first, second))
+                .containsExactly(List.of(first), List.of(second));
+    }
+
+    @Test
+    void leavesOutFilesWithoutARow() {
+        var file = file("a", 4L);
+
+        assertThat(metadataBatcher.plan(List.of(UUID.randomUUID(), file.getId())))
+                .containsExactly(List.of(file));
+    }
+
+    @Test
+    void handsOnTheContentReadForTheBatchPrompt() throws IOException {
+        var first = file("a", 4L);
+        var second = file("a", 4L);
+        var described = write(first, "class A {}");
+        write(second, "class B {}");
+        when(ragDataTransformer.getMetadataForSourceCodes(any(), any()))
+                .thenReturn(Map.of(described.toString(), Map.of("type", "model")));
+
+        assertThat(metadataBatcher.describe(List.of(first, second)))
+                .extracting("indexedFile", "content", "metadata")
+                .containsExactly(
+                        tuple(first, "class A {}", Map.of("type", "model")),
+                        tuple(second, "class B {}", Map.of()));
+    }
+
+    @Test
+    void doesNotReadFilesDescribedAlone() {
+        var file = file("a", 4L);
+
+        assertThat(metadataBatcher.describe(List.of(file)))
+                .extracting("indexedFile", "content", "metadata")
+                .containsExactly(tuple(file, null, Map.of()));
+    }
+
+    private List<List<IndexedFile>> plan(IndexedFile... files) {
+        return metadataBatcher.plan(Arrays.stream(files)
+                .map(IndexedFile::getId)
+                .toList());
+    }
+
+    private IndexedFile file(String appId, Long sizeBytes) {
+        var file = IndexedFile.builder()
+                .appId(appId)
+                .path(stored.size() + ".java")
+                .modifiedAt(LocalDateTime.now())
+                .sizeBytes(sizeBytes)
+                .build();
+        stored.add(file);
+        return file;
+    }
+
+    private Path write(IndexedFile file, String content) throws IOException {
+        var path = directory.resolve(file.getPath());
+        Files.writeString(path, content);
+        when(indexedFilesStore.getPath(file)).thenReturn(path);
+        return path;
+    }
+}
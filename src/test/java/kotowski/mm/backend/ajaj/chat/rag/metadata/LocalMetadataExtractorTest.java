@@ -0,0 +1,108 @@
+package kotowski.mm.backend.ajaj.chat.rag.metadata;
+
+import kotowski.mm.backend.ajaj.chat.rag.symbols.SymbolExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalMetadataExtractorTest {
+    private static final String MIGRATION = """
+            ALTER TABLE public.indexed_file ADD COLUMN content_hash varchar(64);
+            CREATE TABLE IF NOT EXISTS public.code_symbol (id uuid primary key);
+            """;
+    private static final String CONFIG = """
+            spring:
+              datasource:
+                url: jdbc:postgresql://localhost/ajaj
+            app:
+              name: ajaj
+            """;
+
+    private final LocalMetadataExtractor extractor = new LocalMetadataExtractor(new SymbolExtractor());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(extractor, "trivialMaxLines", 20);
+    }
+
+    @Test
+    void extractsJavaMetadata() {
+        var content = """
+                package kotowski.demo;
+
+                import java.util.List;
+                import static java.util.Objects.requireNonNull;
+
+                @Service
+                public class OrderService {
+                    @Transactional
+                    public List<String> orders() {
+                        return List.of();
+                    }
+                }
+                """;
+
+        assertThat(extractor.extract("src/main/java/kotowski/demo/OrderService.java", content)).isEqualTo(Map.of(
+                LocalMetadataExtractor.LANGUAGE, "java",
+                LocalMetadataExtractor.PACKAGE, "kotowski.demo",
+                LocalMetadataExtractor.DEPENDENCIES, "java.util.List, java.util.Objects.requireNonNull",
+                LocalMetadataExtractor.ANNOTATIONS, "Service, Transactional",
+                LocalMetadataExtractor.ENTITIES, "OrderService",
+                LocalMetadataExtractor.TYPE, "service"));
+    }
+
+    @Test
+    void extractsQuotedImports() {
+        var content = """
+                import { Injectable } from '@angular/core';
+                import helper from './helper';
+                const lodash = require('lodash');
+                """;
+
+        assertThat(extractor.extract("app.service.ts", content))
+                .containsEntry(LocalMetadataExtractor.LANGUAGE, "typescript")
+                .containsEntry(LocalMetadataExtractor.DEPENDENCIES, "@angular/core, ./helper, lodash");
+    }
+
+    @Test
+    void typesFilesByPath() {
+        assertThat(extractor.extract("src/test/java/a/OrderServiceTest.java", "class OrderServiceTest {}"))
+                .containsEntry(LocalMetadataExtractor.TYPE, "test");
+        assertThat(extractor.extract("db/migration/V3__symbols.sql", MIGRATION))
+                .containsEntry(LocalMetadataExtractor.TYPE, "migration")
+                .containsEntry(LocalMetadataExtractor.ENTITIES, "code_symbol");
+        assertThat(extractor.extract("application.yml", CONFIG))
+                .containsEntry(LocalMetadataExtractor.TYPE, "config");
+    }
+
+    @Test
+    void skipsUnknownLanguages() {
+        assertThat(extractor.extract("LICENSE", "MIT License")).isEmpty();
+    }
+
+    @Test
+    void treatsShortConfigAndMigrationsAsTrivial() {
+        var code = "class A {\n    void a() {\n    }\n}\n";
+
+        assertThat(extractor.isTrivial("application.yml", CONFIG)).isTrue();
+        assertThat(extractor.isTrivial("application.yml", CONFIG.repeat(5))).isFalse();
+        assertThat(extractor.isTrivial("V3__symbols.sql", MIGRATION.repeat(20))).isTrue();
+        assertThat(extractor.isTrivial("A.java", code)).isFalse();
+        assertThat(extractor.isTrivial("A.java", "class A {\n}\n")).isTrue();
+        assertThat(extractor.isTrivial("LICENSE", code)).isFalse();
+    }
+
+    @Test
+    void describesTrivialFiles() {
+        assertThat(extractor.describeTrivial("db/migration/V3__symbols.sql", MIGRATION))
+                .isEqualTo("Database migration V3__symbols.sql for tables: code_symbol, indexed_file");
+        assertThat(extractor.describeTrivial("config/application.yml", CONFIG))
+                .isEqualTo("Configuration file application.yml with sections: spring, app");
+        assertThat(extractor.describeTrivial("A.java", "class A {\n}\n")).isEqualTo("java file A.java");
+        assertThat(extractor.describeTrivial("LICENSE", "MIT License")).isEqualTo("File LICENSE");
+    }
+}
@@ -0,0 +1,71 @@
+package kotowski.mm.backend.ajaj.chat.rag.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FramedStreamsTest {
+
+    @Test
+    void sectionsAreReadBackUpToTheirEndFrame() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            try (var section = FramedStreams.section(out)) {
+                section.write("first ".getBytes(StandardCharsets.UTF_8));
+                section.write("section".getBytes(StandardCharsets.UTF_8));
+            }
+            try (var section = FramedStreams.section(out)) {
+                section.write('x');
+            }
+            try (var ignored = FramedStreams.section(out)) {
+                // empty section
+            }
+            out.writeInt(42);
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThat(new String(FramedStreams.section(in).readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("first section");
+            var second = FramedStreams.section(in);
+            assertThat(second.read()).isEqualTo((int) 'x');
+            assertThat(second.read()).isEqualTo(-1);
+            assertThat(FramedStreams.section(in).readAllBytes()).isEmpty();
+            assertThat(in.readInt()).isEqualTo(42);
+        }
+    }
+
+    @Test
+    void largeWritesAreReadInPieces() throws IOException {
+        var data = new byte[100_000];
+        Arrays.fill(data, (byte) 0xff);
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes); var section = FramedStreams.section(out)) {
+            section.write(data);
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThat(FramedStreams.section(in).readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void truncatedSectionFails() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            FramedStreams.section(out).write("cut".getBytes(StandardCharsets.UTF_8));
+        }
+        var truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+
+        var section = FramedStreams.section(new DataInputStream(new ByteArrayInputStream(truncated)));
+        assertThatThrownBy(section::readAllBytes).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package kotowski.mm.backend.ajaj.chat.rag.store;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FreshDocumentsTest {
+    private static final float[] QUERY = {1, 0};
+    private static final SearchRequest REQUEST = SearchRequest.builder()
+            .query("question")
+            .topK(3)
+            .similarityThreshold(0.2)
+            .build();
+
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    private final FreshDocuments freshDocuments = new FreshDocuments(embeddingModel);
+    private final List<Integer> requestedTopK = new ArrayList<>();
+
+    @Test
+    void returnsStoredResultsWithoutFreshFiles() {
+        var stored = List.of(stored("/app/A.java", 0.9));
+
+        assertThat(freshDocuments.search(REQUEST, QUERY, search(stored))).isEqualTo(stored);
+        assertThat(requestedTopK).containsExactly(3);
+    }
+
+    @Test
+    void replacesStoredChunksOfFreshFilesAndOrdersByScore() {
+        when(embeddingModel.embed(anyList(), any(), any()))
+                .thenReturn(List.of(new float[]{1, 0}, new float[]{0, 1}, new float[]{1, 1}));
+        freshDocuments.put("/app/B.java", List.of(fresh("/app/B.java", "b1"), fresh("/app/B.java", "b2"), fresh("/app/B.java", "b3")));
+        var first = stored("/app/A.java", 0.9);
+        var outdated = stored("/app/B.java", 0.95);
+        var last = stored("/app/C.java", 0.3);
+
+        var results = freshDocuments.search(REQUEST, QUERY, search(List.of(outdated, first, last)));
+
+        assertThat(results).extracting(Document::getText).containsExactly("b1", "/app/A.java", "b3");
+        assertThat(results.getFirst().getScore()).isEqualTo(1.0);
+        assertThat(requestedTopK).containsExactly(6);
+    }
+
+    @Test
+    void removingAFileWrittenAgainKeepsTheNewerChunks() {
+        when(embeddingModel.embed(anyList(), any(), any())).thenReturn(List.<float[]>of(new float[]{1, 0}));
+        var older = freshDocuments.put("/app/B.java", List.of(fresh("/app/B.java", "old")));
+        freshDocuments.put("/app/B.java", List.of(fresh("/app/B.java", "new")));
+
+        freshDocuments.remove(older);
+
+        assertThat(freshDocuments.search(REQUEST, QUERY, search(List.of())))
+                .extracting(Document::getText)
+                .containsExactly("new");
+    }
+
+    private IntFunction<List<Document>> search(List<Document> stored) {
+        return topK -> {
+            requestedTopK.add(topK);
+            return stored;
+        };
+    }
+
+    private static Document stored(String filepath, double score) {
+        return Document.builder()
+                .text(filepath)
+                .metadata(Map.of("filepath", filepath))
+                .score(score)
+                .build();
+    }
+
+    private static Document fresh(String filepath, String text) {
+        return Document.builder()
+                .text(text)
+                .metadata(Map.of("filepath", filepath))
+                .build();
+    }
+}
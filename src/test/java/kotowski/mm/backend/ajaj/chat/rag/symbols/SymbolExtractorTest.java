@@ -0,0 +1,140 @@
+package kotowski.mm.backend.ajaj.chat.rag.symbols;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SymbolExtractorTest {
+    private final SymbolExtractor symbolExtractor = new SymbolExtractor();
+
+    @Test
+    void extractsJavaTypesAndMethods() {
+        var content = """
+                package a.b;
+
+                import java.util.List;
+
+                public class Foo {
+                    private final int x = 1;
+
+                    public Foo(int x) {
+                        this.x = x;
+                    }
+
+                    public List<String> bar(String value) {
+                        if (value == null) {
+                            return List.of();
+                        }
+                        return helper(value);
+                    }
+                }
+                """;
+
+        assertThat(symbolExtractor.extract("Foo.java", content))
+                .extracting("kind", "name", "container", "lineNumber")
+                .containsExactly(
+                        tuple("class", "Foo", null, 5),
+                        tuple(SymbolExtractor.METHOD, "Foo", "Foo", 8),
+                        tuple(SymbolExtractor.METHOD, "bar", "Foo", 12));
+    }
+
+    @Test
+    void extractsPythonClassesAndFunctions() {
+        var content = """
+                class Greeter:
+                    def greet(self):
+                        pass
+
+                def main():
+                    pass
+                """;
+
+        assertThat(symbolExtractor.extract("greeter.py", content))
+                .extracting("kind", "name", "container", "lineNumber")
+                .containsExactly(
+                        tuple("class", "Greeter", null, 1),
+                        tuple(SymbolExtractor.METHOD, "greet", "Greeter", 2),
+                        tuple(SymbolExtractor.FUNCTION, "main", null, 5));
+    }
+
+    @Test
+    void extractsGoTypesAndFunctions() {
+        var content = """
+                type Server struct {
+                }
+
+                func (s *Server) Start() error {
+                }
+
+                func main() {
+                }
+                """;
+
+        assertThat(symbolExtractor.extract("main.go", content))
+                .extracting("kind", "name", "lineNumber")
+                .containsExactly(
+                        tuple("struct", "Server", 1),
+                        tuple(SymbolExtractor.METHOD, "Start", 4),
+                        tuple(SymbolExtractor.FUNCTION, "main", 7));
+    }
+
+    @Test
+    void extractsNestedYamlKeys() {
+        var content = """
+                spring:
+                  datasource:
+                    url: jdbc:postgresql://localhost/ajaj
+                # comment: ignored
+                app:
+                  name: ajaj
+                """;
+
+        assertThat(symbolExtractor.extract("application.yml", content))
+                .extracting("kind", "name", "container", "lineNumber")
+                .containsExactly(
+                        tuple(SymbolExtractor.CONFIG_KEY, "spring", null, 1),
+                        tuple(SymbolExtractor.CONFIG_KEY, "spring.datasource", "spring", 2),
+                        tuple(SymbolExtractor.CONFIG_KEY, "spring.datasource.url", "spring.datasource", 3),
+                        tuple(SymbolExtractor.CONFIG_KEY, "app", null, 5),
+                        tuple(SymbolExtractor.CONFIG_KEY, "app.name", "app", 6));
+    }
+
+    @Test
+    void extractsPropertiesKeys() {
+        var content = """
+                # server.ignored=1
+                server.port=8080
+                spring.application.name: ajaj
+                """;
+
+        assertThat(symbolExtractor.extract("application.properties", content))
+                .extracting("name", "lineNumber")
+                .containsExactly(tuple("server.port", 2), tuple("spring.application.name", 3));
+    }
+
+    @Test
+    void extractsSqlTablesWithSchema() {
+        var content = """
+                CREATE TABLE IF NOT EXISTS public.indexed_file (
+                    id uuid primary key
+                );
+                create or replace view "file_summary" as select 1;
+                """;
+
+        assertThat(symbolExtractor.extract("V1__init.sql", content))
+                .extracting("kind", "name", "container", "lineNumber")
+                .containsExactly(
+                        tuple(SymbolExtractor.SQL_TABLE, "indexed_file", "public", 1),
+                        tuple(SymbolExtractor.SQL_TABLE, "file_summary", null, 4));
+    }
+
+    @Test
+    void supportsKnownExtensionsOnly() {
+        assertThat(symbolExtractor.supports("Foo.java")).isTrue();
+        assertThat(symbolExtractor.supports("application.YML")).isTrue();
+        assertThat(symbolExtractor.supports("README.md")).isFalse();
+        assertThat(symbolExtractor.supports("Makefile")).isFalse();
+        assertThat(symbolExtractor.extract("README.md", "class Foo {}")).isEmpty();
+    }
+}
@@ -0,0 +1,66 @@
+package kotowski.mm.backend.ajaj.chat.tools.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedFileTest {
+    private static final FileTime MODIFIED_AT = FileTime.fromMillis(0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void trailingNewlineDoesNotStartALine() throws IOException {
+        assertThat(load("one\ntwo\nthree\n").lineCount()).isEqualTo(3);
+        assertThat(load("one\ntwo\nthree").lineCount()).isEqualTo(3);
+        assertThat(load("").lineCount()).isEqualTo(1);
+    }
+
+    @Test
+    void slicesInclusiveLineRanges() throws IOException {
+        var file = load("one\ntwo\nthree\n");
+
+        assertThat(file.slice(1, 1)).isEqualTo("one\n");
+        assertThat(file.slice(2, 3)).isEqualTo("two\nthree\n");
+        assertThat(file.slice(1, 3)).isEqualTo(file.content());
+    }
+
+    @Test
+    void lastLineWithinStopsAtMaxCharsOrToLine() throws IOException {
+        var file = load("one\ntwo\nthree\n");
+
+        assertThat(file.lastLineWithin(1, 3, 8)).isEqualTo(2);
+        assertThat(file.lastLineWithin(1, 3, 100)).isEqualTo(3);
+        assertThat(file.lastLineWithin(1, 2, 100)).isEqualTo(2);
+        assertThat(file.lastLineWithin(3, 3, 6)).isEqualTo(3);
+    }
+
+    @Test
+    void lastLineWithinIsBeforeFromLineWhenTheFirstLineDoesNotFit() throws IOException {
+        var file = load("one\ntwo\nthree\n");
+
+        assertThat(file.lastLineWithin(2, 3, 3)).isEqualTo(1);
+    }
+
+    @Test
+    void countsBytesAndHashesContent() throws IOException {
+        var file = load("za\u017c\u00f3\u0142\u0107\n");
+
+        assertThat(file.sizeBytes()).isEqualTo(11L);
+        assertThat(file.modifiedAt()).isEqualTo(MODIFIED_AT);
+        assertThat(load("one\n").sha256()).isEqualTo("2c8b08da5ce60398e1f19af0e5dccc744df274b826abe585eaba68c525434806");
+    }
+
+    private CachedFile load(String content) throws IOException {
+        var path = Files.createTempFile(directory, "cached", ".txt");
+        Files.writeString(path, content);
+        return CachedFile.load(path, MODIFIED_AT);
+    }
+}
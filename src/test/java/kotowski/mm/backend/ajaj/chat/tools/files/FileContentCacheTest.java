@@ -0,0 +1,63 @@
+package kotowski.mm.backend.ajaj.chat.tools.files;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileContentCacheTest {
+    private static final FileTime MODIFIED_AT = FileTime.fromMillis(1_000_000);
+
+    private final FileContentCache cache = new FileContentCache();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "cacheEntries", 4);
+        ReflectionTestUtils.setField(cache, "maxCachedBytes", 16L);
+        cache.createCache();
+    }
+
+    @Test
+    void reusesUnchangedFile() throws IOException {
+        var path = write("a.txt", "one\n");
+
+        assertThat(cache.get(path)).isSameAs(cache.get(path));
+    }
+
+    @Test
+    void reloadsFileWhoseSizeChangedWithinTheSameModificationTime() throws IOException {
+        var path = write("a.txt", "one\n");
+        cache.get(path);
+
+        write("a.txt", "one\ntwo\n");
+
+        assertThat(cache.get(path).content()).isEqualTo("one\ntwo\n");
+    }
+
+    @Test
+    void doesNotKeepFilesAboveTheSizeLimit() throws IOException {
+        var path = write("large.txt", "0123456789abcdefXYZ\n");
+
+        var first = cache.get(path);
+
+        assertThat(first.content()).isEqualTo("0123456789abcdefXYZ\n");
+        assertThat(cache.get(path)).isNotSameAs(first);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        var path = directory.resolve(name);
+        Files.writeString(path, content);
+        Files.setLastModifiedTime(path, MODIFIED_AT);
+        return path;
+    }
+}
@@ -0,0 +1,40 @@
+package kotowski.mm.backend.ajaj.infrastructure.git;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitClientTest {
+
+    @Test
+    void parsesNulSeparatedNameStatus() {
+        var output = "M\0src/App.java\0A\0docs/with space.md\0D\0old\nline.txt\0T\0link\0";
+
+        assertThat(GitClient.parseNameStatus(output)).containsExactly(
+                new GitChange(GitChange.Status.MODIFIED, "src/App.java", null, true),
+                new GitChange(GitChange.Status.ADDED, "docs/with space.md", null, true),
+                new GitChange(GitChange.Status.DELETED, "old\nline.txt", null, true),
+                new GitChange(GitChange.Status.MODIFIED, "link", null, true));
+    }
+
+    @Test
+    void parsesRenamesWithSimilarity() {
+        var output = "R100\0src/Old.java\0src/New.java\0R075\0a.txt\0b.txt\0M\0c.txt\0";
+
+        assertThat(GitClient.parseNameStatus(output)).containsExactly(
+                new GitChange(GitChange.Status.RENAMED, "src/New.java", "src/Old.java", false),
+                new GitChange(GitChange.Status.RENAMED, "b.txt", "a.txt", true),
+                new GitChange(GitChange.Status.MODIFIED, "c.txt", null, true));
+    }
+
+    @Test
+    void treatsCopiesAsAddedFiles() {
+        assertThat(GitClient.parseNameStatus("C050\0src/A.java\0src/B.java\0")).containsExactly(
+                new GitChange(GitChange.Status.ADDED, "src/B.java", null, true));
+    }
+
+    @Test
+    void parsesEmptyOutput() {
+        assertThat(GitClient.parseNameStatus("")).isEmpty();
+    }
+}
@@ -0,0 +1,45 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kotowski.mm.backend.ajaj.infrastructure.config.ModelRoutingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelRouterTest {
+    private final ModelRoutingProperties properties = new ModelRoutingProperties();
+    private final ModelRouter modelRouter = new ModelRouter(properties, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(modelRouter, "defaultModel", "big");
+        properties.getTasks().put(ModelTask.CHAT, task(null, 16384, null));
+    }
+
+    @Test
+    void taskOnTheChatModelUsesTheChatContextSize() {
+        properties.getTasks().put(ModelTask.REWRITE, task("big", 4096, ModelTask.CHAT));
+
+        assertThat(modelRouter.options(ModelTask.REWRITE).build().getNumCtx()).isEqualTo(16384);
+        assertThat(modelRouter.escalation(ModelTask.REWRITE)).isEmpty();
+    }
+
+    @Test
+    void taskOnAnotherModelUsesItsOwnContextSize() {
+        properties.getTasks().put(ModelTask.REWRITE, task("small", 4096, ModelTask.CHAT));
+
+        assertThat(modelRouter.options(ModelTask.REWRITE).build().getNumCtx()).isEqualTo(4096);
+        assertThat(modelRouter.options(ModelTask.CHAT).build().getNumCtx()).isEqualTo(16384);
+        assertThat(modelRouter.escalation(ModelTask.REWRITE)).contains(ModelTask.CHAT);
+    }
+
+    private static ModelRoutingProperties.TaskModel task(String model, Integer numCtx, ModelTask escalateTo) {
+        var task = new ModelRoutingProperties.TaskModel();
+        task.setModel(model);
+        task.setNumCtx(numCtx);
+        task.setEscalateTo(escalateTo);
+        return task;
+    }
+}
@@ -0,0 +1,118 @@
+package kotowski.mm.backend.ajaj.infrastructure.ollama;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kotowski.mm.backend.ajaj.infrastructure.config.OllamaSchedulerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+class OllamaSchedulerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void grantsFreedSlotToHighestPriorityThenOldestWaiter() throws Exception {
+        var scheduler = scheduler(Map.of());
+        var holder = scheduler.acquire(OllamaPriority.INTERACTIVE);
+        var firstIndexing = acquireLater(scheduler, OllamaPriority.INDEXING);
+        awaitQueued(OllamaPriority.INDEXING, 1);
+        var secondIndexing = acquireLater(scheduler, OllamaPriority.INDEXING);
+        awaitQueued(OllamaPriority.INDEXING, 2);
+        var interactive = acquireLater(scheduler, OllamaPriority.INTERACTIVE);
+        awaitQueued(OllamaPriority.INTERACTIVE, 1);
+
+        holder.close();
+        var interactivePermit = interactive.get(5, TimeUnit.SECONDS);
+        assertThat(firstIndexing).isNotDone();
+
+        interactivePermit.close();
+        var indexingPermit = firstIndexing.get(5, TimeUnit.SECONDS);
+        assertThat(secondIndexing).isNotDone();
+
+        indexingPermit.close();
+        secondIndexing.get(5, TimeUnit.SECONDS).close();
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void abandonsWaiterAfterQueueTimeout() {
+        var scheduler = scheduler(Map.of(OllamaPriority.INDEXING, Duration.ofMillis(50)));
+        var holder = scheduler.acquire(OllamaPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> scheduler.acquire(OllamaPriority.INDEXING))
+                .isInstanceOf(TransientAiException.class);
+        assertThat(queued(OllamaPriority.INDEXING)).isZero();
+        assertThat(meterRegistry.get("ajaj.ollama.rejected").tag("priority", "indexing").counter().count())
+                .isEqualTo(1.0);
+
+        holder.close();
+        assertThat(active()).isZero();
+        scheduler.acquire(OllamaPriority.INDEXING).close();
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void closingPermitTwiceReleasesOneSlot() throws Exception {
+        var scheduler = scheduler(Map.of());
+        var permit = scheduler.acquire(OllamaPriority.INTERACTIVE);
+        permit.close();
+        permit.close();
+
+        var holder = scheduler.acquire(OllamaPriority.INTERACTIVE);
+        var waiting = acquireLater(scheduler, OllamaPriority.INDEXING);
+        awaitQueued(OllamaPriority.INDEXING, 1);
+        assertThat(active()).isEqualTo(1.0);
+
+        holder.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertThat(active()).isZero();
+    }
+
+    private OllamaScheduler scheduler(Map<OllamaPriority, Duration> queueTimeouts) {
+        var properties = new OllamaSchedulerProperties();
+        properties.setSlots(1);
+        var timeouts = new EnumMap<OllamaPriority, Duration>(OllamaPriority.class);
+        timeouts.putAll(queueTimeouts);
+        properties.setQueueTimeout(timeouts);
+        return new OllamaScheduler(properties, meterRegistry, "http://localhost:11434");
+    }
+
+    private CompletableFuture<OllamaScheduler.Permit> acquireLater(OllamaScheduler scheduler, OllamaPriority priority) {
+        return CompletableFuture.supplyAsync(() -> scheduler.acquire(priority), executor);
+    }
+
+    private void awaitQueued(OllamaPriority priority, int expected) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(priority) != expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected %d queued %s requests, got %s", expected, priority.getTag(), queued(priority));
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private double queued(OllamaPriority priority) {
+        return meterRegistry.get("ajaj.ollama.queue").tag("priority", priority.getTag()).gauge().value();
+    }
+
+    private double active() {
+        return meterRegistry.get("ajaj.ollama.active").gauge().value();
+    }
+}